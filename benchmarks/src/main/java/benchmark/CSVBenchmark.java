@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import model.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.CSVHandler;
+
+/**
+ * Reading and rewriting the appointments CSV
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CSVBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private Path dir;
+    private String appointmentsFile;
+    private String outputFile;
+    private List<Appointment> appointments;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = SyntheticData.create(rows);
+        appointmentsFile = dir.resolve("appointments.csv").toString();
+        outputFile = dir.resolve("appointments-out.csv").toString();
+        appointments = CSVHandler.readAppointments(appointmentsFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticData.delete(dir);
+    }
+
+    @Benchmark
+    public List<Appointment> readAppointments() {
+        return CSVHandler.readAppointments(appointmentsFile);
+    }
+
+    @Benchmark
+    public void writeAppointments() {
+        CSVHandler.writeAppointments(outputFile, appointments);
+    }
+}
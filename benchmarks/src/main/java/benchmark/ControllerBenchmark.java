@@ -0,0 +1,83 @@
+package benchmark;
+
+import controller.HealthcareController;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import model.Appointment;
+import model.Patient;
+import model.Referral;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.DatasetGenerator;
+
+/**
+ * Controller lookups and referral creation against a loaded data set.
+ * createReferral runs with the application's default persistence settings,
+ * so it includes the CSV append and the queued notifications.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ControllerBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private Path dir;
+    private HealthcareController controller;
+    private long clinicians;
+    private long gps;
+    private long specialists;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = SyntheticData.create(rows);
+        DatasetGenerator generator = SyntheticData.generator(rows);
+        clinicians = generator.getClinicianCount();
+        gps = generator.getGpCount();
+        specialists = generator.getSpecialistCount();
+        controller = new HealthcareController(dir.toString());
+        controller.loadAllData(dir.toString(), false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticData.delete(dir);
+    }
+
+    @Benchmark
+    public Patient getPatientById() {
+        return controller.getPatientById(DatasetGenerator.patientId(ThreadLocalRandom.current().nextInt(rows)));
+    }
+
+    @Benchmark
+    public List<Appointment> getAppointmentsByClinician() {
+        return controller.getAppointmentsByClinician(
+                DatasetGenerator.clinicianId(ThreadLocalRandom.current().nextLong(clinicians)));
+    }
+
+    @Benchmark
+    public Referral createReferral() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return controller.createReferral(DatasetGenerator.patientId(random.nextInt(rows)),
+                DatasetGenerator.gpId(random.nextLong(gps)),
+                DatasetGenerator.specialistId(random.nextLong(specialists)),
+                "Benchmark referral", "ROUTINE", "");
+    }
+}
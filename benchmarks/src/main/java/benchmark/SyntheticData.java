@@ -0,0 +1,51 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import util.DatasetGenerator;
+
+/**
+ * Throwaway data directories for the benchmarks: the given number of
+ * patients, appointments, prescriptions and referrals, with one clinician
+ * per 100 patients. The same row count always produces the same data.
+ */
+final class SyntheticData {
+    private static final long SEED = 42;
+
+    private SyntheticData() {
+    }
+
+    static DatasetGenerator generator(int rows) {
+        DatasetGenerator generator = new DatasetGenerator(SEED);
+        generator.setPatients(rows);
+        generator.setPatientsPerClinician(100);
+        generator.setAppointmentsPerPatient(1);
+        generator.setPrescriptionsPerPatient(1);
+        generator.setReferralsPerPatient(1);
+        return generator;
+    }
+
+    /**
+     * Creates a temporary directory holding the five CSV files
+     */
+    static Path create(int rows) throws IOException {
+        Path dir = Files.createTempDirectory("hms-bench-" + rows + "-");
+        generator(rows).generate(dir.toString());
+        return dir;
+    }
+
+    /**
+     * Deletes a directory created by create(), including files written during the run
+     */
+    static void delete(Path dir) {
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.toFile().delete();
+    }
+}
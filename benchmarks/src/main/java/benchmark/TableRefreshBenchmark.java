@@ -0,0 +1,72 @@
+package benchmark;
+
+import controller.HealthcareController;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import view.AppointmentPanel;
+import view.PrescriptionPanel;
+import view.ReferralPanel;
+
+/**
+ * Rebuilding the appointment, prescription and referral tables from the controller.
+ * The panels are never shown, so this runs headless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class TableRefreshBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private Path dir;
+    private AppointmentPanel appointmentPanel;
+    private PrescriptionPanel prescriptionPanel;
+    private ReferralPanel referralPanel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = SyntheticData.create(rows);
+        HealthcareController controller = new HealthcareController(dir.toString());
+        controller.loadAllData(dir.toString(), false);
+        appointmentPanel = new AppointmentPanel(controller);
+        prescriptionPanel = new PrescriptionPanel(controller);
+        referralPanel = new ReferralPanel(controller);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticData.delete(dir);
+    }
+
+    @Benchmark
+    public void refreshAppointments() {
+        appointmentPanel.refreshData();
+    }
+
+    @Benchmark
+    public void refreshPrescriptions() {
+        prescriptionPanel.refreshData();
+    }
+
+    @Benchmark
+    public void refreshReferrals() {
+        referralPanel.refreshData();
+    }
+}
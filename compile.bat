@@ -18,6 +18,10 @@ echo Compiling controller classes...
 javac -source 1.8 -target 1.8 -d bin -cp bin src\controller\*.java
 if %ERRORLEVEL% NEQ 0 goto :error
 
+echo Compiling server classes...
+javac -source 1.8 -target 1.8 -d bin -cp bin src\server\*.java
+if %ERRORLEVEL% NEQ 0 goto :error
+
 echo Compiling view classes...
 javac -source 1.8 -target 1.8 -d bin -cp bin src\view\*.java
 if %ERRORLEVEL% NEQ 0 goto :error
@@ -0,0 +1,20 @@
+@echo off
+echo Starting Healthcare Management System service...
+echo.
+
+REM Check if compiled
+if not exist "bin\server\HealthcareServer.class" (
+    echo Error: Application not compiled. Please run compile.bat first.
+    pause
+    exit /b 1
+)
+
+REM Run the application
+java -cp bin server.HealthcareServer %*
+
+if %ERRORLEVEL% NEQ 0 (
+    echo.
+    echo Error: Service failed to start.
+    pause
+    exit /b 1
+)
@@ -0,0 +1,12 @@
+package controller;
+
+/**
+ * What HealthcareController does with a booking that overlaps another
+ * appointment of the same clinician or patient
+ */
+public enum ConflictPolicy {
+    /** The booking is refused */
+    REJECT,
+    /** The booking is made and the overlap logged as a warning */
+    FLAG
+}
@@ -0,0 +1,55 @@
+package controller;
+
+import model.User;
+
+/**
+ * The fields of a patient or clinician shown when other records refer to
+ * them, computed once and cached by HealthcareController until the user
+ * is changed through a setter
+ */
+public class DisplayProjection {
+    private final User source;
+    private final int revision;
+    private final String id;
+    private final String fullName;
+    private final String specialty;
+    private final String nhsNumber;
+
+    DisplayProjection(User source, String id, String specialty, String nhsNumber) {
+        this.source = source;
+        this.revision = source.getRevision();
+        this.id = id;
+        this.fullName = source.getFullName();
+        this.specialty = specialty;
+        this.nhsNumber = nhsNumber;
+    }
+
+    /**
+     * Returns true if this was computed from the given user as it is now
+     */
+    boolean isCurrent(User user) {
+        return source == user && revision == user.getRevision();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    /**
+     * Returns the clinician's specialty, or null for a patient
+     */
+    public String getSpecialty() {
+        return specialty;
+    }
+
+    /**
+     * Returns the patient's NHS number, or null for a clinician
+     */
+    public String getNhsNumber() {
+        return nhsNumber;
+    }
+}
@@ -0,0 +1,44 @@
+package controller;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a change made through HealthcareController: which kind of
+ * entity changed, how, and the IDs of the records affected
+ */
+public class EntityChangeEvent {
+    public enum EntityType { PATIENT, APPOINTMENT, PRESCRIPTION, REFERRAL }
+
+    public enum ChangeType { ADDED, UPDATED, REMOVED }
+
+    private final EntityType entityType;
+    private final ChangeType changeType;
+    private final List<String> ids;
+
+    public EntityChangeEvent(EntityType entityType, ChangeType changeType, List<String> ids) {
+        this.entityType = entityType;
+        this.changeType = changeType;
+        this.ids = Collections.unmodifiableList(ids);
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    /**
+     * Returns the IDs of the changed records, in the order the changes were made
+     */
+    public List<String> getIds() {
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return entityType + " " + changeType + " " + ids;
+    }
+}
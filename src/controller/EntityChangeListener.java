@@ -0,0 +1,11 @@
+package controller;
+
+/**
+ * Receives the changes made through a HealthcareController. Events are
+ * delivered on the thread that made the change, after the controller's
+ * locks are released, so a listener may query the controller but should
+ * hand any slow or UI work to another thread.
+ */
+public interface EntityChangeListener {
+    void entityChanged(EntityChangeEvent event);
+}
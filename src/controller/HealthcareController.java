@@ -1,128 +1,459 @@
 package controller;
 
+import java.io.File;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import controller.EntityChangeEvent.ChangeType;
+import controller.EntityChangeEvent.EntityType;
 import model.*;
+import util.AppointmentTimeline;
 import util.CSVHandler;
+import util.GroupCommitWriter;
+import util.IdCodec;
+import util.IdIndex;
+import util.IdMultiValueIndex;
+import util.LinkedSetMultiValueIndex;
+import util.Journal;
+import util.SnapshotCompactor;
+import util.SortedIndex;
+import util.ValueDictionary;
+import util.MultiValueIndex;
 import util.ReferralManager;
 
 /**
  * Main controller for the Healthcare Management System
  * Implements MVC pattern - handles business logic and data management
+ *
+ * One instance may be shared by several terminals and batch jobs. Each entity
+ * type has its own read-write lock guarding its list and secondary indexes,
+ * so writers of one type never wait for another; ID lookups go through
+ * IdIndex and only wait for a writer that is mid-update, and IDs are
+ * allocated atomically.
  */
 public class HealthcareController {
+    private static final String DEFAULT_DATA_DIRECTORY = "data";
+    /** Minutes every appointment is taken to last when checking for double-bookings */
+    public static final int SLOT_MINUTES = 15;
+
+    // CSV files that changes are persisted to
+    private final String patientsFile;
+    private final String appointmentsFile;
+    private final String prescriptionsFile;
+    private final String referralsFile;
+
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+    private static final int COMPACTION_MAX_RECORDS = 10000;
+    private static final long COMPACTION_MAX_BYTES = 8L * 1024 * 1024;
+
     private List<Patient> patients;
     private List<Clinician> clinicians;
     private List<AdminStaff> adminStaff;
     private List<Appointment> appointments;
     private List<Prescription> prescriptions;
     private ReferralManager referralManager;
+
+    // One lock per entity type guards its list, secondary indexes and persistence
+    private final ReentrantReadWriteLock patientLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock clinicianLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock adminStaffLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock appointmentLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock prescriptionLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock referralLock = new ReentrantReadWriteLock();
+
+    // ID-keyed indexes kept in step with the lists above for O(1) lookups;
+    // IDs are held in compact int form and lookups never wait for a writer
+    // that isn't mid-update. Admin staff IDs have no fixed prefix, so they
+    // stay in a concurrent map.
+    private volatile IdIndex<Patient> patientIndex;
+    private volatile IdIndex<Clinician> clinicianIndex;
+    private volatile Map<String, AdminStaff> adminStaffIndex;
+    private volatile IdIndex<Appointment> appointmentIndex;
+    private volatile IdIndex<Prescription> prescriptionIndex;
+
+    // Foreign-key indexes, also keyed by compact ID, so per-patient and
+    // per-clinician queries avoid full scans
+    private MultiValueIndex<String, Patient> patientsByGp;
+    private MultiValueIndex<String, Appointment> appointmentsByPatient;
+    private MultiValueIndex<String, Appointment> appointmentsByClinician;
+    private MultiValueIndex<String, Prescription> prescriptionsByPatient;
+    private MultiValueIndex<String, Prescription> prescriptionsByClinician;
+
+    // Search indexes: lower-cased name terms for prefix search, NHS numbers,
+    // appointment status (upper-cased) and prescription date
+    private SortedIndex<String, Patient> patientsByName;
+    private MultiValueIndex<String, Patient> patientsByNhs;
+    private MultiValueIndex<String, Appointment> appointmentsByStatus;
+    private SortedIndex<LocalDate, Prescription> prescriptionsByDate;
+
+    // Display names and details of patients and clinicians, built on first use
+    // and recomputed only when the user's revision changes
+    private final Map<String, DisplayProjection> patientDisplay = new ConcurrentHashMap<>();
+    private final Map<String, DisplayProjection> clinicianDisplay = new ConcurrentHashMap<>();
+
+    // Time-ordered appointment indexes, clinic-wide and per clinician
+    private AppointmentTimeline appointmentTimeline;
+    private IdIndex<AppointmentTimeline> clinicianTimelines;
     
-    private int nextAppointmentId = 1000;
-    private int nextPrescriptionId = 2000;
-    private int nextReferralId = 3000;
-    private int nextPatientId = 1000;
+    private final AtomicInteger nextAppointmentId = new AtomicInteger(1000);
+    private final AtomicInteger nextPrescriptionId = new AtomicInteger(2000);
+    private final AtomicInteger nextReferralId = new AtomicInteger(3000);
+    private final AtomicInteger nextPatientId = new AtomicInteger(1000);
+
+    private volatile ConflictPolicy conflictPolicy = ConflictPolicy.REJECT;
+
+    // Journaled persistence appends one record per mutation instead of rewriting a CSV
+    private volatile boolean journaling;
+    private final Journal patientJournal;
+    private final Journal appointmentJournal;
+    private final Journal prescriptionJournal;
+    private final Journal referralJournal;
+    private SnapshotCompactor compactor;
+
+    private final List<EntityChangeListener> changeListeners = new CopyOnWriteArrayList<>();
 
     public HealthcareController() {
+        this(DEFAULT_DATA_DIRECTORY);
+    }
+
+    /**
+     * Creates a controller that persists changes, journals and referral
+     * notifications to the given directory
+     */
+    public HealthcareController(String dataDirectory) {
+        String dir = dataDirectory.endsWith("/") ? dataDirectory : dataDirectory + "/";
+        this.patientsFile = dir + "patients.csv";
+        this.appointmentsFile = dir + "appointments.csv";
+        this.prescriptionsFile = dir + "prescriptions.csv";
+        this.referralsFile = dir + "referrals.csv";
+        this.patientJournal = new Journal(patientsFile);
+        this.appointmentJournal = new Journal(appointmentsFile);
+        this.prescriptionJournal = new Journal(prescriptionsFile);
+        this.referralJournal = new Journal(referralsFile);
         this.patients = new ArrayList<>();
         this.clinicians = new ArrayList<>();
         this.adminStaff = new ArrayList<>();
         this.appointments = new ArrayList<>();
         this.prescriptions = new ArrayList<>();
         this.referralManager = ReferralManager.getInstance();
+        this.referralManager.setLogDirectory(dataDirectory);
+        this.patientIndex = new IdIndex<>(IdCodec.PATIENT);
+        this.clinicianIndex = new IdIndex<>(IdCodec.CLINICIAN);
+        this.adminStaffIndex = new ConcurrentHashMap<>();
+        this.appointmentIndex = new IdIndex<>(IdCodec.APPOINTMENT);
+        this.prescriptionIndex = new IdIndex<>(IdCodec.PRESCRIPTION);
+        this.patientsByGp = new IdMultiValueIndex<>(IdCodec.CLINICIAN);
+        this.patientsByName = new SortedIndex<>();
+        this.patientsByNhs = new MultiValueIndex<>();
+        this.appointmentsByStatus = new LinkedSetMultiValueIndex<>();
+        this.prescriptionsByDate = new SortedIndex<>();
+        this.appointmentsByPatient = new IdMultiValueIndex<>(IdCodec.PATIENT);
+        this.appointmentsByClinician = new IdMultiValueIndex<>(IdCodec.CLINICIAN);
+        this.prescriptionsByPatient = new IdMultiValueIndex<>(IdCodec.PATIENT);
+        this.prescriptionsByClinician = new IdMultiValueIndex<>(IdCodec.CLINICIAN);
+        this.appointmentTimeline = new AppointmentTimeline();
+        this.clinicianTimelines = new IdIndex<>(IdCodec.CLINICIAN);
+    }
+
+    /**
+     * Returns the shared instance of a value that repeats across many records
+     */
+    private static String shared(String value) {
+        return ValueDictionary.getInstance().intern(value);
+    }
+
+    // ==================== Change Notification ====================
+
+    /**
+     * Registers a listener for every entity added, updated or removed
+     * through this controller; bulk loads are reported via LoadListener instead
+     */
+    public void addChangeListener(EntityChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(EntityChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Tells the listeners about a change; callers must not hold any entity lock
+     */
+    private void fireChange(EntityType entityType, ChangeType changeType, String id) {
+        fireChange(entityType, changeType, Collections.singletonList(id));
+    }
+
+    private void fireChange(EntityType entityType, ChangeType changeType, List<String> ids) {
+        if (changeListeners.isEmpty() || ids.isEmpty()) {
+            return;
+        }
+        EntityChangeEvent event = new EntityChangeEvent(entityType, changeType, ids);
+        for (EntityChangeListener listener : changeListeners) {
+            try {
+                listener.entityChanged(event);
+            } catch (RuntimeException e) {
+                System.err.println("Error notifying change listener: " + e.getMessage());
+            }
+        }
     }
 
     // ==================== Data Loading Methods ====================
+
+    /**
+     * Loads patients, clinicians, appointments, prescriptions and referrals
+     * from the given directory. In parallel mode the five files are read
+     * concurrently and large files are additionally parsed in chunks on the
+     * fork-join pool. Pending journal records are replayed over each snapshot
+     * as it is read.
+     */
+    public void loadAllData(String dataDirectory, boolean parallel) {
+        loadAllData(dataDirectory, parallel, null);
+    }
+
+    /**
+     * Loads all data files as above, installing each one as soon as it has
+     * been read and reporting it to the listener, if any, so callers can
+     * show a file's records while the others are still loading.
+     */
+    public void loadAllData(String dataDirectory, boolean parallel, LoadListener listener) {
+        String dir = dataDirectory.endsWith("/") ? dataDirectory : dataDirectory + "/";
+        String patientsCsv = dir + "patients.csv";
+        String cliniciansCsv = dir + "clinicians.csv";
+        String appointmentsCsv = dir + "appointments.csv";
+        String prescriptionsCsv = dir + "prescriptions.csv";
+        String referralsCsv = dir + "referrals.csv";
+        Runnable[] steps = {
+            () -> loadFile("patients", patientsCsv,
+                    () -> CSVHandler.loadPatients(patientsCsv, parallel),
+                    this::installPatients, listener),
+            () -> loadFile("clinicians", cliniciansCsv,
+                    () -> CSVHandler.readClinicians(cliniciansCsv, parallel),
+                    this::installClinicians, listener),
+            () -> loadFile("appointments", appointmentsCsv,
+                    () -> CSVHandler.loadAppointments(appointmentsCsv, parallel),
+                    this::installAppointments, listener),
+            () -> loadFile("prescriptions", prescriptionsCsv,
+                    () -> CSVHandler.loadPrescriptions(prescriptionsCsv, parallel),
+                    this::installPrescriptions, listener),
+            () -> loadFile("referrals", referralsCsv,
+                    () -> CSVHandler.loadReferrals(referralsCsv, parallel),
+                    this::installReferrals, listener)
+        };
+
+        if (!parallel) {
+            for (Runnable step : steps) {
+                step.run();
+            }
+            return;
+        }
+
+        // Each entity type has its own lock, so files are installed as they finish
+        ExecutorService fileLoader = Executors.newFixedThreadPool(steps.length);
+        try {
+            CompletableFuture<?>[] loads = new CompletableFuture<?>[steps.length];
+            for (int i = 0; i < steps.length; i++) {
+                loads[i] = CompletableFuture.runAsync(steps[i], fileLoader);
+            }
+            CompletableFuture.allOf(loads).join();
+        } finally {
+            fileLoader.shutdown();
+        }
+    }
+
+    /**
+     * Reads one data file, installs its records and reports it to the listener
+     */
+    private <T> void loadFile(String entity, String filename, Supplier<List<T>> reader,
+                              Consumer<List<T>> installer, LoadListener listener) {
+        long start = System.nanoTime();
+        List<T> loaded = reader.get();
+        installer.accept(loaded);
+        if (listener != null) {
+            listener.fileLoaded(entity, loaded.size(), new File(filename).length(), System.nanoTime() - start);
+        }
+    }
     
     public void loadPatients(String filename) {
-        patients = CSVHandler.readPatients(filename);
-        System.out.println("Loaded " + patients.size() + " patients");
-        updateNextPatientId();
+        installPatients(CSVHandler.loadPatients(filename, false));
+    }
+
+    private void installPatients(List<Patient> loaded) {
+        patientLock.writeLock().lock();
+        try {
+            patients = loaded;
+            rebuildPatientIndex();
+            patientDisplay.clear();
+            System.out.println("Loaded " + patients.size() + " patients");
+            updateNextPatientId();
+        } finally {
+            patientLock.writeLock().unlock();
+        }
+    }
+
+    private void rebuildPatientIndex() {
+        IdIndex<Patient> index = new IdIndex<>(IdCodec.PATIENT, patients.size());
+        patientsByGp.clear();
+        patientsByName.clear();
+        patientsByNhs.clear();
+        for (Patient patient : patients) {
+            index.put(patient.getPatientId(), patient);
+            patientsByGp.add(patient.getGpId(), patient);
+            indexPatientSearch(patient);
+        }
+        patientIndex = index;
     }
 
     private void updateNextPatientId() {
         for (Patient patient : patients) {
-            try {
-                int id = Integer.parseInt(patient.getPatientId().replaceAll("[^0-9]", ""));
-                if (id >= nextPatientId) {
-                    nextPatientId = id + 1;
-                }
-            } catch (NumberFormatException e) {
-                // Skip non-numeric IDs
-            }
+            reserveId(nextPatientId, patient.getPatientId());
+        }
+    }
+
+    /**
+     * Moves a counter past the numeric part of an existing ID;
+     * IDs that are not letters followed by a number are skipped
+     */
+    private static void reserveId(AtomicInteger counter, String existingId) {
+        int id = IdCodec.ordinal(existingId);
+        if (id >= 0 && id >= counter.get()) {
+            counter.accumulateAndGet(id + 1, Math::max);
         }
     }
 
     public void loadClinicians(String filename) {
-        clinicians = CSVHandler.readClinicians(filename);
-        System.out.println("Loaded " + clinicians.size() + " clinicians");
+        installClinicians(CSVHandler.readClinicians(filename));
+    }
+
+    private void installClinicians(List<Clinician> loaded) {
+        clinicianLock.writeLock().lock();
+        try {
+            clinicians = loaded;
+            IdIndex<Clinician> index = new IdIndex<>(IdCodec.CLINICIAN, clinicians.size());
+            for (Clinician clinician : clinicians) {
+                index.put(clinician.getClinicianId(), clinician);
+            }
+            clinicianIndex = index;
+            clinicianDisplay.clear();
+            System.out.println("Loaded " + clinicians.size() + " clinicians");
+        } finally {
+            clinicianLock.writeLock().unlock();
+        }
     }
 
     public void loadAdminStaff(String filename) {
-        adminStaff = CSVHandler.readAdminStaff(filename);
-        System.out.println("Loaded " + adminStaff.size() + " admin staff");
+        List<AdminStaff> loaded = CSVHandler.readAdminStaff(filename);
+        adminStaffLock.writeLock().lock();
+        try {
+            adminStaff = loaded;
+            Map<String, AdminStaff> index = new ConcurrentHashMap<>(adminStaff.size() * 2);
+            for (AdminStaff staff : adminStaff) {
+                index.put(staff.getStaffId(), staff);
+            }
+            adminStaffIndex = index;
+            System.out.println("Loaded " + adminStaff.size() + " admin staff");
+        } finally {
+            adminStaffLock.writeLock().unlock();
+        }
     }
 
     public void loadAppointments(String filename) {
-        appointments = CSVHandler.readAppointments(filename);
-        System.out.println("Loaded " + appointments.size() + " appointments");
-        updateNextAppointmentId();
+        installAppointments(CSVHandler.loadAppointments(filename, false));
+    }
+
+    private void installAppointments(List<Appointment> loaded) {
+        appointmentLock.writeLock().lock();
+        try {
+            appointments = loaded;
+            IdIndex<Appointment> index = new IdIndex<>(IdCodec.APPOINTMENT, appointments.size());
+            appointmentsByPatient.clear();
+            appointmentsByClinician.clear();
+            appointmentsByStatus.clear();
+            appointmentTimeline.clear();
+            clinicianTimelines.clear();
+            for (Appointment apt : appointments) {
+                index.put(apt.getAppointmentId(), apt);
+                indexAppointmentRelations(apt);
+            }
+            appointmentIndex = index;
+            System.out.println("Loaded " + appointments.size() + " appointments");
+            updateNextAppointmentId();
+        } finally {
+            appointmentLock.writeLock().unlock();
+        }
     }
 
     public void loadPrescriptions(String filename) {
-        prescriptions = CSVHandler.readPrescriptions(filename);
-        System.out.println("Loaded " + prescriptions.size() + " prescriptions");
-        updateNextPrescriptionId();
+        installPrescriptions(CSVHandler.loadPrescriptions(filename, false));
+    }
+
+    private void installPrescriptions(List<Prescription> loaded) {
+        prescriptionLock.writeLock().lock();
+        try {
+            prescriptions = loaded;
+            IdIndex<Prescription> index = new IdIndex<>(IdCodec.PRESCRIPTION, prescriptions.size());
+            prescriptionsByPatient.clear();
+            prescriptionsByClinician.clear();
+            prescriptionsByDate.clear();
+            for (Prescription pres : prescriptions) {
+                index.put(pres.getPrescriptionId(), pres);
+                indexPrescriptionRelations(pres);
+            }
+            prescriptionIndex = index;
+            System.out.println("Loaded " + prescriptions.size() + " prescriptions");
+            updateNextPrescriptionId();
+        } finally {
+            prescriptionLock.writeLock().unlock();
+        }
     }
 
     public void loadReferrals(String filename) {
-        List<Referral> referrals = CSVHandler.readReferrals(filename);
-        for (Referral referral : referrals) {
-            referralManager.getAllReferrals().add(referral);
+        installReferrals(CSVHandler.loadReferrals(filename, false));
+    }
+
+    private void installReferrals(List<Referral> referrals) {
+        referralLock.writeLock().lock();
+        try {
+            referralManager.loadReferrals(referrals);
+            System.out.println("Loaded " + referrals.size() + " referrals");
+            updateNextReferralId();
+        } finally {
+            referralLock.writeLock().unlock();
         }
-        System.out.println("Loaded " + referrals.size() + " referrals");
-        updateNextReferralId();
     }
 
     private void updateNextAppointmentId() {
         for (Appointment apt : appointments) {
-            try {
-                int id = Integer.parseInt(apt.getAppointmentId().replaceAll("[^0-9]", ""));
-                if (id >= nextAppointmentId) {
-                    nextAppointmentId = id + 1;
-                }
-            } catch (NumberFormatException e) {
-                // Skip non-numeric IDs
-            }
+            reserveId(nextAppointmentId, apt.getAppointmentId());
         }
     }
 
     private void updateNextPrescriptionId() {
         for (Prescription pres : prescriptions) {
-            try {
-                int id = Integer.parseInt(pres.getPrescriptionId().replaceAll("[^0-9]", ""));
-                if (id >= nextPrescriptionId) {
-                    nextPrescriptionId = id + 1;
-                }
-            } catch (NumberFormatException e) {
-                // Skip non-numeric IDs
-            }
+            reserveId(nextPrescriptionId, pres.getPrescriptionId());
         }
     }
 
     private void updateNextReferralId() {
         for (Referral ref : referralManager.getAllReferrals()) {
-            try {
-                int id = Integer.parseInt(ref.getReferralId().replaceAll("[^0-9]", ""));
-                if (id >= nextReferralId) {
-                    nextReferralId = id + 1;
-                }
-            } catch (NumberFormatException e) {
-                // Skip non-numeric IDs
-            }
+            reserveId(nextReferralId, ref.getReferralId());
         }
     }
 
@@ -132,125 +463,576 @@ public class HealthcareController {
                              String email, String phone, String dobString,
                              String address, String nhsNumber, String gpId) {
         // Auto-generate patient ID
-        String patientId = "P" + nextPatientId++;
+        String patientId = "P" + nextPatientId.getAndIncrement();
+        Patient patient;
+        GroupCommitWriter.Commit commit;
         
+        patientLock.writeLock().lock();
         try {
             LocalDate dateOfBirth = LocalDate.parse(dobString);
-            Patient patient = new Patient(patientId, firstName, lastName, email, phone,
+            patient = new Patient(patientId, firstName, lastName, email, phone,
                                          dateOfBirth, address, nhsNumber, gpId);
             patients.add(patient);
-            savePatients();
-            return patient;
+            patientIndex.put(patientId, patient);
+            patientsByGp.add(gpId, patient);
+            indexPatientSearch(patient);
+            commit = persistPatient(patient);
         } catch (Exception e) {
             System.err.println("Error creating patient: " + e.getMessage());
             return null;
+        } finally {
+            patientLock.writeLock().unlock();
         }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.PATIENT, ChangeType.ADDED, patientId);
+        return patient;
+    }
+
+    // Returns the journal append for the caller to await once it has
+    // released the patient lock, or null after a full rewrite
+    private GroupCommitWriter.Commit persistPatient(Patient patient) {
+        if (journaling) {
+            return patientJournal.submitUpsert(CSVHandler.formatPatient(patient));
+        }
+        savePatients();
+        return null;
     }
 
     private void savePatients() {
-        CSVHandler.writePatients("data/patients.csv", patients);
+        rewriteSnapshot(patientsFile, patientJournal, () -> CSVHandler.writePatients(patientsFile, patients));
     }
 
     public boolean deletePatient(String patientId) {
-        Patient patient = getPatientById(patientId);
-        if (patient != null) {
+        GroupCommitWriter.Commit commit = null;
+        patientLock.writeLock().lock();
+        try {
+            Patient patient = getPatientById(patientId);
+            if (patient == null) {
+                return false;
+            }
             patients.remove(patient);
-            savePatients();
-            return true;
+            patientIndex.remove(patientId);
+            patientDisplay.remove(patientId);
+            patientsByGp.remove(patient.getGpId(), patient);
+            unindexPatientSearch(patient);
+            if (journaling) {
+                commit = patientJournal.submitDelete(patientId);
+            } else {
+                savePatients();
+            }
+        } finally {
+            patientLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.PATIENT, ChangeType.REMOVED, patientId);
+        return true;
+    }
+
+    // Callers hold the patient write lock for these index updates
+    private void indexPatientSearch(Patient patient) {
+        for (String term : nameTerms(patient)) {
+            patientsByName.add(term, patient);
+        }
+        if (patient.getNhsNumber() != null && !patient.getNhsNumber().isEmpty()) {
+            patientsByNhs.add(patient.getNhsNumber(), patient);
+        }
+    }
+
+    private void unindexPatientSearch(Patient patient) {
+        for (String term : nameTerms(patient)) {
+            patientsByName.remove(term, patient);
+        }
+        patientsByNhs.remove(patient.getNhsNumber(), patient);
+    }
+
+    /**
+     * A patient can be found by a prefix of the first name, last name or "first last"
+     */
+    private static String[] nameTerms(Patient patient) {
+        String first = patient.getFirstName() == null ? "" : patient.getFirstName().toLowerCase();
+        String last = patient.getLastName() == null ? "" : patient.getLastName().toLowerCase();
+        return new String[] {first, last, first + " " + last};
+    }
+
+    /**
+     * Finds up to limit patients whose patient ID or NHS number equals the
+     * query, or whose first name, last name or full name starts with it,
+     * ignoring case; exact ID and NHS matches come first. A blank query
+     * returns the first patients.
+     */
+    public List<Patient> searchPatients(String query, int limit) {
+        String term = query == null ? "" : query.trim();
+        if (term.isEmpty()) {
+            return getPatients(0, limit);
+        }
+        patientLock.readLock().lock();
+        try {
+            List<Patient> result = new ArrayList<>();
+            Patient byId = patientIndex.get(term);
+            if (byId != null && limit > 0) {
+                result.add(byId);
+            }
+            for (Patient patient : patientsByNhs.find(term, p -> p != byId, limit - result.size())) {
+                result.add(patient);
+            }
+            String prefix = term.toLowerCase();
+            Predicate<Patient> notYetFound = patient -> !result.contains(patient);
+            result.addAll(patientsByName.find(prefix, SortedIndex.prefixEnd(prefix), notYetFound,
+                    limit - result.size()));
+            return result;
+        } finally {
+            patientLock.readLock().unlock();
+        }
+    }
+
+    public List<Patient> getPatientsByGp(String gpId) {
+        patientLock.readLock().lock();
+        try {
+            return patientsByGp.get(gpId);
+        } finally {
+            patientLock.readLock().unlock();
         }
-        return false;
     }
 
     // ==================== Appointment Management ====================
     
+    /**
+     * Sets whether bookings that overlap another appointment of the same
+     * clinician or patient are rejected (the default) or made and logged
+     */
+    public void setConflictPolicy(ConflictPolicy policy) {
+        this.conflictPolicy = policy;
+    }
+
+    public ConflictPolicy getConflictPolicy() {
+        return conflictPolicy;
+    }
+
+    /**
+     * Creates an appointment, or returns null if it overlaps another
+     * appointment of the clinician or patient and the policy is REJECT
+     */
     public Appointment createAppointment(String patientId, String clinicianId, 
                                         LocalDateTime dateTime, String type, String notes) {
-        String appointmentId = "APT" + nextAppointmentId++;
-        Appointment appointment = new Appointment(appointmentId, patientId, clinicianId, 
-                                                  dateTime, type, "SCHEDULED", notes);
-        appointments.add(appointment);
-        saveAppointments();
+        String appointmentId;
+        Appointment appointment;
+        GroupCommitWriter.Commit commit;
+        appointmentLock.writeLock().lock();
+        try {
+            if (!allowBooking(patientId, clinicianId, dateTime, null)) {
+                return null;
+            }
+            appointmentId = "APT" + nextAppointmentId.getAndIncrement();
+            appointment = new Appointment(appointmentId, patientId, shared(clinicianId),
+                                          dateTime, shared(type), "SCHEDULED", notes);
+            appointments.add(appointment);
+            indexAppointment(appointment);
+            commit = persistAppointment(appointment);
+        } finally {
+            appointmentLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.APPOINTMENT, ChangeType.ADDED, appointmentId);
         return appointment;
     }
 
+    /**
+     * Moves an appointment and replaces its notes; returns false if it is
+     * unknown, or if the new time overlaps another appointment of the
+     * clinician or patient and the policy is REJECT
+     */
     public boolean modifyAppointment(String appointmentId, LocalDateTime newDateTime, String newNotes) {
-        for (Appointment apt : appointments) {
-            if (apt.getAppointmentId().equals(appointmentId)) {
-                apt.setAppointmentDateTime(newDateTime);
-                apt.setNotes(newNotes);
-                saveAppointments();
-                return true;
+        GroupCommitWriter.Commit commit;
+        appointmentLock.writeLock().lock();
+        try {
+            Appointment apt = getAppointmentById(appointmentId);
+            if (apt == null || !allowBooking(apt.getPatientId(), apt.getClinicianId(), newDateTime, apt)) {
+                return false;
             }
+            unscheduleAppointment(apt);
+            apt.setAppointmentDateTime(newDateTime);
+            scheduleAppointment(apt);
+            apt.setNotes(newNotes);
+            commit = persistAppointment(apt);
+        } finally {
+            appointmentLock.writeLock().unlock();
         }
-        return false;
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.APPOINTMENT, ChangeType.UPDATED, appointmentId);
+        return true;
     }
 
     public boolean cancelAppointment(String appointmentId) {
-        for (Appointment apt : appointments) {
-            if (apt.getAppointmentId().equals(appointmentId)) {
-                apt.setStatus("CANCELLED");
-                saveAppointments();
-                return true;
+        GroupCommitWriter.Commit commit;
+        appointmentLock.writeLock().lock();
+        try {
+            Appointment apt = getAppointmentById(appointmentId);
+            if (apt == null) {
+                return false;
+            }
+            appointmentsByStatus.remove(statusKey(apt.getStatus()), apt);
+            apt.setStatus("CANCELLED");
+            appointmentsByStatus.add(statusKey(apt.getStatus()), apt);
+            commit = persistAppointment(apt);
+        } finally {
+            appointmentLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.APPOINTMENT, ChangeType.UPDATED, appointmentId);
+        return true;
+    }
+
+    /**
+     * Returns the appointments, other than the one with the given ID, that a
+     * booking at the given time would overlap: at most one of the clinician's
+     * and one of the patient's. Either ID may be null to skip that check.
+     */
+    public List<Appointment> findConflicts(String patientId, String clinicianId,
+                                           LocalDateTime dateTime, String ignoreAppointmentId) {
+        appointmentLock.readLock().lock();
+        try {
+            return conflicts(patientId, clinicianId, dateTime, getAppointmentById(ignoreAppointmentId));
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the earliest time at or after the given one at which the
+     * clinician is free for the given number of minutes and a booking would
+     * overlap none of the patient's appointments either, so the conflict
+     * policy accepts it. The appointment with the given ID, if any, is
+     * ignored, as when it is the one being moved.
+     */
+    public LocalDateTime findFirstFreeSlot(String patientId, String clinicianId, LocalDateTime after,
+                                           int lengthMinutes, String ignoreAppointmentId) {
+        appointmentLock.readLock().lock();
+        try {
+            Appointment ignore = getAppointmentById(ignoreAppointmentId);
+            AppointmentTimeline timeline = clinicianTimelines.get(clinicianId);
+            LocalDateTime candidate = after;
+            while (true) {
+                if (timeline != null) {
+                    candidate = timeline.firstFreeSlot(candidate, lengthMinutes, SLOT_MINUTES, ignore);
+                }
+                List<Appointment> clashes = conflicts(patientId, clinicianId, candidate, ignore);
+                if (clashes.isEmpty()) {
+                    return candidate;
+                }
+                // Try again after the clashing slots; each pass moves forward
+                for (Appointment clash : clashes) {
+                    LocalDateTime end = clash.getAppointmentDateTime().plusMinutes(SLOT_MINUTES);
+                    if (end.isAfter(candidate)) {
+                        candidate = end;
+                    }
+                }
             }
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    // Callers hold the appointment lock for these conflict checks
+
+    private List<Appointment> conflicts(String patientId, String clinicianId,
+                                        LocalDateTime dateTime, Appointment ignore) {
+        List<Appointment> result = new ArrayList<>(2);
+        AppointmentTimeline timeline = clinicianId == null ? null : clinicianTimelines.get(clinicianId);
+        Appointment clash = timeline == null ? null
+                : timeline.firstConflict(dateTime, SLOT_MINUTES, SLOT_MINUTES, ignore);
+        if (clash != null) {
+            result.add(clash);
+        }
+        if (patientId != null) {
+            // A patient has few appointments, so their list is scanned
+            result.addAll(appointmentsByPatient.find(patientId,
+                    apt -> apt != ignore && apt != clash && overlapsSlot(apt, dateTime), 1));
         }
-        return false;
+        return result;
+    }
+
+    private static boolean overlapsSlot(Appointment apt, LocalDateTime dateTime) {
+        LocalDateTime start = apt.getAppointmentDateTime();
+        return !"CANCELLED".equals(apt.getStatus())
+                && start.isAfter(dateTime.minusMinutes(SLOT_MINUTES))
+                && start.isBefore(dateTime.plusMinutes(SLOT_MINUTES));
+    }
+
+    /**
+     * Applies the conflict policy to a booking; returns false if it must be refused
+     */
+    private boolean allowBooking(String patientId, String clinicianId, LocalDateTime dateTime, Appointment ignore) {
+        return allowBooking(patientId, clinicianId, dateTime, ignore, Appointment::getAppointmentId);
+    }
+
+    // nameOf describes an overlapping appointment in the messages
+    private boolean allowBooking(String patientId, String clinicianId, LocalDateTime dateTime, Appointment ignore,
+                                 Function<Appointment, String> nameOf) {
+        List<Appointment> clashes = conflicts(patientId, clinicianId, dateTime, ignore);
+        if (clashes.isEmpty()) {
+            return true;
+        }
+        String overlapping = clashes.stream().map(nameOf).collect(Collectors.joining(", "));
+        if (conflictPolicy == ConflictPolicy.REJECT) {
+            System.err.println("Booking at " + dateTime + " rejected: overlaps " + overlapping);
+            return false;
+        }
+        System.out.println("Warning: booking at " + dateTime + " overlaps " + overlapping);
+        return true;
     }
 
     public List<Appointment> getAppointmentsByPatient(String patientId) {
-        return appointments.stream()
-                .filter(apt -> apt.getPatientId().equals(patientId))
-                .collect(Collectors.toList());
+        appointmentLock.readLock().lock();
+        try {
+            return appointmentsByPatient.get(patientId);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
     }
 
     public List<Appointment> getAppointmentsByClinician(String clinicianId) {
-        return appointments.stream()
-                .filter(apt -> apt.getClinicianId().equals(clinicianId))
-                .collect(Collectors.toList());
+        appointmentLock.readLock().lock();
+        try {
+            return appointmentsByClinician.get(clinicianId);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    // Callers hold the appointment write lock for these index updates
+    private void indexAppointment(Appointment apt) {
+        appointmentIndex.put(apt.getAppointmentId(), apt);
+        indexAppointmentRelations(apt);
+    }
+
+    private void indexAppointmentRelations(Appointment apt) {
+        appointmentsByPatient.add(apt.getPatientId(), apt);
+        appointmentsByClinician.add(apt.getClinicianId(), apt);
+        appointmentsByStatus.add(statusKey(apt.getStatus()), apt);
+        scheduleAppointment(apt);
+    }
+
+    /**
+     * Statuses are matched ignoring case, so they are indexed upper-cased
+     */
+    private static String statusKey(String status) {
+        return status == null ? null : status.toUpperCase();
+    }
+
+    /**
+     * Finds up to limit appointments matching every given criterion; null
+     * criteria match anything. The status ignores case and the date range
+     * includes both ends. The clinician's timeline, the clinic timeline or
+     * the status index drives the search, whichever is narrowest. Results
+     * are in time order, except that a search by status alone returns them
+     * in the order they were loaded, booked or given that status.
+     */
+    public List<Appointment> findAppointments(String clinicianId, String status,
+                                              LocalDate from, LocalDate to, int limit) {
+        LocalDateTime start = from == null ? LocalDateTime.MIN : from.atStartOfDay();
+        LocalDateTime end = to == null ? LocalDateTime.MAX : to.plusDays(1).atStartOfDay();
+        Predicate<Appointment> statusFilter = apt -> status == null || status.equalsIgnoreCase(apt.getStatus());
+        appointmentLock.readLock().lock();
+        try {
+            if (clinicianId != null) {
+                AppointmentTimeline timeline = clinicianTimelines.get(clinicianId);
+                return timeline == null ? new ArrayList<>() : timeline.find(start, end, statusFilter, limit);
+            }
+            if (status != null && from == null && to == null) {
+                return appointmentsByStatus.find(statusKey(status), apt -> true, limit);
+            }
+            return appointmentTimeline.find(start, end, statusFilter, limit);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    private void scheduleAppointment(Appointment apt) {
+        appointmentTimeline.add(apt);
+        AppointmentTimeline timeline = clinicianTimelines.get(apt.getClinicianId());
+        if (timeline == null) {
+            timeline = new AppointmentTimeline();
+            clinicianTimelines.put(apt.getClinicianId(), timeline);
+        }
+        timeline.add(apt);
+    }
+
+    private void unscheduleAppointment(Appointment apt) {
+        appointmentTimeline.remove(apt);
+        AppointmentTimeline timeline = clinicianTimelines.get(apt.getClinicianId());
+        if (timeline != null) {
+            timeline.remove(apt);
+        }
+    }
+
+    /**
+     * Returns all appointments from (inclusive) up to (exclusive) the given times, in time order
+     */
+    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        appointmentLock.readLock().lock();
+        try {
+            return appointmentTimeline.between(from, to);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a clinician's appointments from (inclusive) up to (exclusive) the given times
+     */
+    public List<Appointment> getClinicianAppointmentsBetween(String clinicianId,
+                                                             LocalDateTime from, LocalDateTime to) {
+        appointmentLock.readLock().lock();
+        try {
+            AppointmentTimeline timeline = clinicianTimelines.get(clinicianId);
+            return timeline == null ? new ArrayList<>() : timeline.between(from, to);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the next appointments across the clinic that are not cancelled
+     */
+    public List<Appointment> getUpcomingAppointments(LocalDateTime from, int limit) {
+        appointmentLock.readLock().lock();
+        try {
+            return appointmentTimeline.upcoming(from, limit);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a clinician's next appointments that are not cancelled
+     */
+    public List<Appointment> getUpcomingAppointments(String clinicianId, LocalDateTime from, int limit) {
+        appointmentLock.readLock().lock();
+        try {
+            AppointmentTimeline timeline = clinicianTimelines.get(clinicianId);
+            return timeline == null ? new ArrayList<>() : timeline.upcoming(from, limit);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a clinician's clinic list for one day: every appointment
+     * that is not cancelled, in time order
+     */
+    public List<Appointment> getDaySheet(String clinicianId, LocalDate day) {
+        List<Appointment> daySheet = getClinicianAppointmentsBetween(clinicianId,
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        daySheet.removeIf(apt -> "CANCELLED".equals(apt.getStatus()));
+        return daySheet;
     }
 
     // ==================== Prescription Management ====================
     
     public Prescription createPrescription(String patientId, String clinicianId, String condition,
                                           String drugName, String dosage, String duration, String instructions) {
-        String prescriptionId = "PRC" + nextPrescriptionId++;
-        Prescription prescription = new Prescription(prescriptionId, patientId, clinicianId,
-                                                     LocalDate.now(), condition, drugName, 
-                                                     dosage, duration, instructions);
-        prescriptions.add(prescription);
-        CSVHandler.appendPrescription("data/prescriptions.csv", prescription);
+        String prescriptionId = "PRC" + nextPrescriptionId.getAndIncrement();
+        Prescription prescription = new Prescription(prescriptionId, patientId, shared(clinicianId),
+                                                     LocalDate.now(), condition, shared(drugName),
+                                                     shared(dosage), shared(duration), instructions);
+        GroupCommitWriter.Commit commit;
+        prescriptionLock.writeLock().lock();
+        try {
+            prescriptions.add(prescription);
+            indexPrescription(prescription);
+            // Queued under the lock so the file keeps the list's order, but
+            // waited for after it so concurrent callers can share one batch
+            commit = journaling
+                    ? prescriptionJournal.submitUpsert(CSVHandler.formatPrescription(prescription))
+                    : CSVHandler.submitPrescription(prescriptionsFile, prescription);
+        } finally {
+            prescriptionLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.PRESCRIPTION, ChangeType.ADDED, prescriptionId);
         return prescription;
     }
 
     public List<Prescription> getPrescriptionsByPatient(String patientId) {
-        return prescriptions.stream()
-                .filter(pres -> pres.getPatientId().equals(patientId))
-                .collect(Collectors.toList());
+        prescriptionLock.readLock().lock();
+        try {
+            return prescriptionsByPatient.get(patientId);
+        } finally {
+            prescriptionLock.readLock().unlock();
+        }
     }
 
     public List<Prescription> getPrescriptionsByClinician(String clinicianId) {
-        return prescriptions.stream()
-                .filter(pres -> pres.getClinicianId().equals(clinicianId))
-                .collect(Collectors.toList());
+        prescriptionLock.readLock().lock();
+        try {
+            return prescriptionsByClinician.get(clinicianId);
+        } finally {
+            prescriptionLock.readLock().unlock();
+        }
+    }
+
+    // Callers hold the prescription write lock for these index updates
+    private void indexPrescription(Prescription pres) {
+        prescriptionIndex.put(pres.getPrescriptionId(), pres);
+        indexPrescriptionRelations(pres);
+    }
+
+    private void indexPrescriptionRelations(Prescription pres) {
+        prescriptionsByPatient.add(pres.getPatientId(), pres);
+        prescriptionsByClinician.add(pres.getClinicianId(), pres);
+        prescriptionsByDate.add(pres.getPrescriptionDate(), pres);
+    }
+
+    /**
+     * Finds up to limit prescriptions by the given clinician and issued within
+     * the given dates, both ends included; null criteria match anything
+     */
+    public List<Prescription> findPrescriptions(String clinicianId, LocalDate from, LocalDate to, int limit) {
+        if (clinicianId == null && from == null && to == null) {
+            return getPrescriptions(0, limit);
+        }
+        Predicate<Prescription> dateFilter = pres ->
+                (from == null || (pres.getPrescriptionDate() != null && !pres.getPrescriptionDate().isBefore(from)))
+                && (to == null || (pres.getPrescriptionDate() != null && !pres.getPrescriptionDate().isAfter(to)));
+        prescriptionLock.readLock().lock();
+        try {
+            if (clinicianId != null) {
+                return prescriptionsByClinician.find(clinicianId, dateFilter, limit);
+            }
+            return prescriptionsByDate.find(from, to == null ? null : to.plusDays(1), pres -> true, limit);
+        } finally {
+            prescriptionLock.readLock().unlock();
+        }
     }
 
     // ==================== Referral Management ====================
     
     public Referral createReferral(String patientId, String gpId, String specialistId,
                                    String reason, String urgency, String notes) {
-        String referralId = "REF" + nextReferralId++;
-        Referral referral = new Referral(referralId, patientId, gpId, specialistId,
-                                         LocalDate.now(), reason, urgency, "PENDING", notes);
+        String referralId = "REF" + nextReferralId.getAndIncrement();
+        Referral referral = new Referral(referralId, patientId, shared(gpId), shared(specialistId),
+                                         LocalDate.now(), reason, shared(urgency), "PENDING", notes);
         
         // Get patient, GP, and specialist objects
         Patient patient = getPatientById(patientId);
         Clinician gp = getClinicianById(gpId);
         Clinician specialist = getClinicianById(specialistId);
         
-        // Use singleton ReferralManager to process the referral
-        referralManager.addReferral(referral, patient, gp, specialist);
-        
-        // Save to CSV
-        CSVHandler.appendReferral("data/referrals.csv", referral);
+        GroupCommitWriter.Commit commit;
+        referralLock.writeLock().lock();
+        try {
+            // Use singleton ReferralManager to process the referral
+            referralManager.addReferral(referral, patient, gp, specialist);
+
+            // Save to CSV, waiting for the write once the lock is released
+            commit = journaling
+                    ? referralJournal.submitUpsert(CSVHandler.formatReferral(referral))
+                    : CSVHandler.submitReferral(referralsFile, referral);
+        } finally {
+            referralLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.REFERRAL, ChangeType.ADDED, referralId);
         
         return referral;
     }
@@ -263,64 +1045,533 @@ public class HealthcareController {
         return referralManager.getReferralsBySpecialist(specialistId);
     }
 
+    /**
+     * Finds up to limit referrals matching every given criterion; null
+     * criteria match anything. The clinician may be the GP or the specialist.
+     */
+    public List<Referral> findReferrals(String clinicianId, String status, String urgency,
+                                        LocalDate from, LocalDate to, int limit) {
+        return referralManager.findReferrals(clinicianId, status, urgency, from, to, limit);
+    }
+
+    public List<Referral> getReferralsByGp(String gpId) {
+        return referralManager.getReferralsByGp(gpId);
+    }
+
     public void updateReferralStatus(String referralId, String newStatus) {
-        referralManager.updateReferralStatus(referralId, newStatus);
-        saveReferrals();
+        // An unknown ID changes nothing, so nothing is saved
+        Referral referral = referralManager.getReferralById(referralId);
+        if (referral == null) {
+            return;
+        }
+        // Held so concurrent status changes reach the journal in the order they were made
+        GroupCommitWriter.Commit commit = null;
+        referralLock.writeLock().lock();
+        try {
+            referralManager.updateReferralStatus(referralId, shared(newStatus));
+            if (journaling) {
+                commit = referralJournal.submitUpsert(CSVHandler.formatReferral(referral));
+            } else {
+                saveReferrals();
+            }
+        } finally {
+            referralLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.REFERRAL, ChangeType.UPDATED, referralId);
+    }
+
+    // ==================== Bulk Import ====================
+
+    /**
+     * Imports many appointments at once, e.g. a nightly feed from a partner
+     * practice; the records' own IDs are ignored. Records naming an unknown
+     * patient or clinician or missing a time are skipped, as are overlapping
+     * bookings under the REJECT policy, each with a message on stderr. The
+     * rest are added as copies with consecutive new IDs under one lock, saved
+     * with one write and announced in one change event.
+     * Returns the appointments imported.
+     */
+    public List<Appointment> importAppointments(List<Appointment> records) {
+        List<Integer> recordNumbers = new ArrayList<>(records.size());
+        List<Appointment> valid = validCopies(records, this::appointmentProblem, record ->
+                new Appointment(null, record.getPatientId(), shared(record.getClinicianId()),
+                        record.getAppointmentDateTime(), shared(record.getAppointmentType()),
+                        shared(orDefault(record.getStatus(), "SCHEDULED")), record.getNotes()),
+                "appointment", recordNumbers);
+        // Earlier records of this import have no ID yet when a later one
+        // overlaps them, so they are named by record number
+        Map<Appointment, Integer> batchNumbers = new IdentityHashMap<>();
+        for (int i = 0; i < valid.size(); i++) {
+            batchNumbers.put(valid.get(i), recordNumbers.get(i));
+        }
+        Function<Appointment, String> nameOf = apt -> apt.getAppointmentId() != null
+                ? apt.getAppointmentId() : "appointment " + batchNumbers.get(apt) + " of import";
+        List<Appointment> imported = new ArrayList<>(valid.size());
+        GroupCommitWriter.Commit commit = null;
+        appointmentLock.writeLock().lock();
+        try {
+            for (Appointment apt : valid) {
+                // Indexed as it goes, so later records are checked against earlier ones
+                if ("CANCELLED".equalsIgnoreCase(apt.getStatus())
+                        || allowBooking(apt.getPatientId(), apt.getClinicianId(), apt.getAppointmentDateTime(),
+                                        null, nameOf)) {
+                    indexAppointmentRelations(apt);
+                    imported.add(apt);
+                }
+            }
+            // IDs are given last, in one block, so refused bookings leave no gaps
+            int firstId = nextAppointmentId.getAndAdd(imported.size());
+            for (int i = 0; i < imported.size(); i++) {
+                Appointment apt = imported.get(i);
+                apt.setAppointmentId("APT" + (firstId + i));
+                appointmentIndex.put(apt.getAppointmentId(), apt);
+            }
+            if (!imported.isEmpty()) {
+                appointments.addAll(imported);
+                commit = journaling
+                        ? appointmentJournal.submitUpserts(formatAll(imported, CSVHandler::formatAppointment))
+                        : CSVHandler.submitAppointments(appointmentsFile, imported);
+            }
+        } finally {
+            appointmentLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.APPOINTMENT, ChangeType.ADDED, idsOf(imported, Appointment::getAppointmentId));
+        return imported;
+    }
+
+    /**
+     * Imports many prescriptions at once, like importAppointments; records
+     * naming an unknown patient or clinician or missing a drug are skipped.
+     * Records without a date are dated today. Returns the prescriptions imported.
+     */
+    public List<Prescription> importPrescriptions(List<Prescription> records) {
+        List<Prescription> imported = validCopies(records, this::prescriptionProblem, record ->
+                new Prescription(null, record.getPatientId(), shared(record.getClinicianId()),
+                        orDefault(record.getPrescriptionDate(), LocalDate.now()), record.getCondition(),
+                        shared(record.getDrugName()), shared(record.getDosage()), shared(record.getDuration()),
+                        record.getInstructions()),
+                "prescription");
+        if (imported.isEmpty()) {
+            return imported;
+        }
+        int firstId = nextPrescriptionId.getAndAdd(imported.size());
+        for (int i = 0; i < imported.size(); i++) {
+            imported.get(i).setPrescriptionId("PRC" + (firstId + i));
+        }
+        GroupCommitWriter.Commit commit;
+        prescriptionLock.writeLock().lock();
+        try {
+            for (Prescription pres : imported) {
+                indexPrescription(pres);
+            }
+            prescriptions.addAll(imported);
+            commit = journaling
+                    ? prescriptionJournal.submitUpserts(formatAll(imported, CSVHandler::formatPrescription))
+                    : CSVHandler.submitPrescriptions(prescriptionsFile, imported);
+        } finally {
+            prescriptionLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.PRESCRIPTION, ChangeType.ADDED, idsOf(imported, Prescription::getPrescriptionId));
+        return imported;
+    }
+
+    /**
+     * Imports many referrals at once, like importAppointments; records naming
+     * an unknown patient, GP or specialist or missing an urgency are skipped.
+     * Records without a date are dated today and without a status are
+     * PENDING. Their email and EHR notifications are written by one
+     * background task. Returns the referrals imported.
+     */
+    public List<Referral> importReferrals(List<Referral> records) {
+        List<Referral> imported = validCopies(records, this::referralProblem, record ->
+                new Referral(null, record.getPatientId(), shared(record.getGpId()), shared(record.getSpecialistId()),
+                        orDefault(record.getReferralDate(), LocalDate.now()), record.getReason(),
+                        shared(record.getUrgency()), shared(orDefault(record.getStatus(), "PENDING")),
+                        record.getNotes()),
+                "referral");
+        if (imported.isEmpty()) {
+            return imported;
+        }
+        int firstId = nextReferralId.getAndAdd(imported.size());
+        for (int i = 0; i < imported.size(); i++) {
+            imported.get(i).setReferralId("REF" + (firstId + i));
+        }
+        GroupCommitWriter.Commit commit;
+        referralLock.writeLock().lock();
+        try {
+            referralManager.addReferrals(imported, this::getPatientById, this::getClinicianById);
+            commit = journaling
+                    ? referralJournal.submitUpserts(formatAll(imported, CSVHandler::formatReferral))
+                    : CSVHandler.submitReferrals(referralsFile, imported);
+        } finally {
+            referralLock.writeLock().unlock();
+        }
+        GroupCommitWriter.getInstance().awaitCommit(commit);
+        fireChange(EntityType.REFERRAL, ChangeType.ADDED, idsOf(imported, Referral::getReferralId));
+        return imported;
+    }
+
+    /**
+     * Checks records in parallel, reporting and dropping those with a
+     * problem, and returns copies of the rest in their original order
+     */
+    private static <T> List<T> validCopies(List<T> records, Function<T, String> problemOf,
+                                           UnaryOperator<T> copyOf, String entity) {
+        return validCopies(records, problemOf, copyOf, entity, null);
+    }
+
+    /**
+     * Like validCopies, also adding the 1-based record number of each copy
+     * to recordNumbers, as used in the import's messages
+     */
+    private static <T> List<T> validCopies(List<T> records, Function<T, String> problemOf,
+                                           UnaryOperator<T> copyOf, String entity, List<Integer> recordNumbers) {
+        List<String> problems = records.parallelStream().map(problemOf).collect(Collectors.toList());
+        List<T> valid = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            if (problems.get(i) == null) {
+                valid.add(records.get(i));
+                if (recordNumbers != null) {
+                    recordNumbers.add(i + 1);
+                }
+            } else {
+                System.err.println("Skipped " + entity + " " + (i + 1) + " of import: " + problems.get(i));
+            }
+        }
+        return valid.parallelStream().map(copyOf).collect(Collectors.toList());
+    }
+
+    private String appointmentProblem(Appointment apt) {
+        if (getPatientById(apt.getPatientId()) == null) {
+            return "unknown patient " + apt.getPatientId();
+        }
+        if (getClinicianById(apt.getClinicianId()) == null) {
+            return "unknown clinician " + apt.getClinicianId();
+        }
+        return apt.getAppointmentDateTime() == null ? "no date and time" : null;
+    }
+
+    private String prescriptionProblem(Prescription pres) {
+        if (getPatientById(pres.getPatientId()) == null) {
+            return "unknown patient " + pres.getPatientId();
+        }
+        if (getClinicianById(pres.getClinicianId()) == null) {
+            return "unknown clinician " + pres.getClinicianId();
+        }
+        return isBlank(pres.getDrugName()) ? "no drug name" : null;
+    }
+
+    private String referralProblem(Referral ref) {
+        if (getPatientById(ref.getPatientId()) == null) {
+            return "unknown patient " + ref.getPatientId();
+        }
+        if (getClinicianById(ref.getGpId()) == null) {
+            return "unknown GP " + ref.getGpId();
+        }
+        if (getClinicianById(ref.getSpecialistId()) == null) {
+            return "unknown specialist " + ref.getSpecialistId();
+        }
+        return isBlank(ref.getUrgency()) ? "no urgency" : null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return isBlank(value) ? defaultValue : value;
+    }
+
+    private static LocalDate orDefault(LocalDate value, LocalDate defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
+    private static <T> List<String> formatAll(List<T> entities, Function<T, String> format) {
+        return entities.stream().map(format).collect(Collectors.toList());
+    }
+
+    private static <T> List<String> idsOf(List<T> entities, Function<T, String> idOf) {
+        return entities.stream().map(idOf).collect(Collectors.toList());
     }
 
     // ==================== Getters for Entities ====================
     
     public Patient getPatientById(String patientId) {
-        return patients.stream()
-                .filter(p -> p.getPatientId().equals(patientId))
-                .findFirst()
-                .orElse(null);
+        return patientIndex.get(patientId);
     }
 
     public Clinician getClinicianById(String clinicianId) {
-        return clinicians.stream()
-                .filter(c -> c.getClinicianId().equals(clinicianId))
-                .findFirst()
-                .orElse(null);
+        return clinicianIndex.get(clinicianId);
+    }
+
+    public AdminStaff getAdminStaffById(String staffId) {
+        return adminStaffIndex.get(staffId);
+    }
+
+    public Appointment getAppointmentById(String appointmentId) {
+        return appointmentIndex.get(appointmentId);
+    }
+
+    public Prescription getPrescriptionById(String prescriptionId) {
+        return prescriptionIndex.get(prescriptionId);
+    }
+
+    public Referral getReferralById(String referralId) {
+        return referralManager.getReferralById(referralId);
+    }
+
+    /**
+     * Returns the cached display fields of a patient, or null if there is no such patient
+     */
+    public DisplayProjection getPatientDisplay(String patientId) {
+        Patient patient = patientIndex.get(patientId);
+        if (patient == null) {
+            return null;
+        }
+        DisplayProjection display = patientDisplay.get(patientId);
+        if (display == null || !display.isCurrent(patient)) {
+            display = new DisplayProjection(patient, patientId, null, patient.getNhsNumber());
+            patientDisplay.put(patientId, display);
+        }
+        return display;
+    }
+
+    /**
+     * Returns the cached display fields of a clinician, or null if there is no such clinician
+     */
+    public DisplayProjection getClinicianDisplay(String clinicianId) {
+        Clinician clinician = clinicianIndex.get(clinicianId);
+        if (clinician == null) {
+            return null;
+        }
+        DisplayProjection display = clinicianDisplay.get(clinicianId);
+        if (display == null || !display.isCurrent(clinician)) {
+            display = new DisplayProjection(clinician, clinicianId, clinician.getSpecialty(), null);
+            clinicianDisplay.put(clinicianId, display);
+        }
+        return display;
     }
 
     public List<Patient> getAllPatients() {
-        return new ArrayList<>(patients);
+        patientLock.readLock().lock();
+        try {
+            return new ArrayList<>(patients);
+        } finally {
+            patientLock.readLock().unlock();
+        }
     }
 
     public List<Clinician> getAllClinicians() {
-        return new ArrayList<>(clinicians);
+        clinicianLock.readLock().lock();
+        try {
+            return new ArrayList<>(clinicians);
+        } finally {
+            clinicianLock.readLock().unlock();
+        }
     }
 
     public List<Clinician> getCliniciansByType(String type) {
-        return clinicians.stream()
-                .filter(c -> c.getClinicianType().equals(type))
-                .collect(Collectors.toList());
+        clinicianLock.readLock().lock();
+        try {
+            return clinicians.stream()
+                    .filter(c -> c.getClinicianType().equals(type))
+                    .collect(Collectors.toList());
+        } finally {
+            clinicianLock.readLock().unlock();
+        }
     }
 
     public List<Appointment> getAllAppointments() {
-        return new ArrayList<>(appointments);
+        appointmentLock.readLock().lock();
+        try {
+            return new ArrayList<>(appointments);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
     }
 
     public List<Prescription> getAllPrescriptions() {
-        return new ArrayList<>(prescriptions);
+        prescriptionLock.readLock().lock();
+        try {
+            return new ArrayList<>(prescriptions);
+        } finally {
+            prescriptionLock.readLock().unlock();
+        }
     }
 
     public List<Referral> getAllReferrals() {
         return referralManager.getAllReferrals();
     }
 
+    /**
+     * Returns up to limit patients from the given position, copying only that page
+     */
+    public List<Patient> getPatients(int offset, int limit) {
+        patientLock.readLock().lock();
+        try {
+            return page(patients, offset, limit);
+        } finally {
+            patientLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit appointments from the given position, copying only that page
+     */
+    public List<Appointment> getAppointments(int offset, int limit) {
+        appointmentLock.readLock().lock();
+        try {
+            return page(appointments, offset, limit);
+        } finally {
+            appointmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit prescriptions from the given position, copying only that page
+     */
+    public List<Prescription> getPrescriptions(int offset, int limit) {
+        prescriptionLock.readLock().lock();
+        try {
+            return page(prescriptions, offset, limit);
+        } finally {
+            prescriptionLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit referrals from the given position, copying only that page
+     */
+    public List<Referral> getReferrals(int offset, int limit) {
+        return referralManager.getReferrals(offset, limit);
+    }
+
+    private static <T> List<T> page(List<T> source, int offset, int limit) {
+        int from = Math.min(Math.max(offset, 0), source.size());
+        int to = from + Math.min(Math.max(limit, 0), source.size() - from);
+        return new ArrayList<>(source.subList(from, to));
+    }
+
     // ==================== Save Methods ====================
     
+    /**
+     * Switches between journaled persistence, where each mutation appends one
+     * record to a journal next to its CSV, and rewriting the CSV on every change
+     */
+    public synchronized void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+        if (journaling) {
+            startCompactor();
+        } else if (compactor != null) {
+            compactor.stop();
+            compactor = null;
+        }
+    }
+
+    private void startCompactor() {
+        if (compactor != null) {
+            return;
+        }
+        compactor = new SnapshotCompactor(COMPACTION_MAX_RECORDS, COMPACTION_MAX_BYTES);
+        compactor.register(patientJournal, patientsFile, CSVHandler.PATIENTS_HEADER);
+        compactor.register(appointmentJournal, appointmentsFile, CSVHandler.APPOINTMENTS_HEADER);
+        compactor.register(prescriptionJournal, prescriptionsFile, CSVHandler.PRESCRIPTIONS_HEADER);
+        compactor.register(referralJournal, referralsFile, CSVHandler.REFERRALS_HEADER);
+        compactor.start(COMPACTION_INTERVAL_SECONDS);
+    }
+
+    /**
+     * Sets the journal size, in records or bytes, at which the background
+     * compactor folds a journal into a fresh snapshot
+     */
+    public synchronized void setCompactionThresholds(int maxPendingRecords, long maxPendingBytes) {
+        if (compactor != null) {
+            compactor.setThresholds(maxPendingRecords, maxPendingBytes);
+        }
+    }
+
+    /**
+     * Asks the background compactor to fold every pending journal now
+     */
+    public synchronized void compactSnapshots() {
+        if (compactor != null) {
+            compactor.compactNow();
+        }
+    }
+
+    public boolean isJournaling() {
+        return journaling;
+    }
+
+    /**
+     * Configures how appends to CSV, journal and log files are committed.
+     * Appends arriving within the batch window share one write; syncOnCommit
+     * forces each batch to disk, and waitForCommit makes every mutation wait
+     * for its batch instead of returning as soon as it is queued.
+     */
+    public void setAppendDurability(long batchWindowMillis, boolean syncOnCommit, boolean waitForCommit) {
+        GroupCommitWriter writer = GroupCommitWriter.getInstance();
+        writer.setBatchWindowMillis(batchWindowMillis);
+        writer.setSyncOnCommit(syncOnCommit);
+        writer.setWaitForCommit(waitForCommit);
+    }
+
+    /**
+     * Keeps binary columnar copies of the appointments, prescriptions and
+     * referrals files, which are read in place of the CSV files while current
+     */
+    public void setColumnarStorage(boolean enabled) {
+        CSVHandler.setColumnarStore(enabled);
+    }
+
+    // Returns the journal append for the caller to await once it has
+    // released the appointment lock, or null after a full rewrite
+    private GroupCommitWriter.Commit persistAppointment(Appointment appointment) {
+        if (journaling) {
+            return appointmentJournal.submitUpsert(CSVHandler.formatAppointment(appointment));
+        }
+        saveAppointments();
+        return null;
+    }
+
+    // Full rewrites fold any pending journal records into the snapshot;
+    // callers hold the entity's write lock
     private void saveAppointments() {
-        CSVHandler.writeAppointments("data/appointments.csv", appointments);
+        rewriteSnapshot(appointmentsFile, appointmentJournal,
+                () -> CSVHandler.writeAppointments(appointmentsFile, appointments));
     }
 
     private void saveReferrals() {
-        CSVHandler.writeReferrals("data/referrals.csv", referralManager.getAllReferrals());
+        rewriteSnapshot(referralsFile, referralJournal,
+                () -> CSVHandler.writeReferrals(referralsFile, referralManager.getAllReferrals()));
     }
 
     public void savePrescriptions() {
-        CSVHandler.writePrescriptions("data/prescriptions.csv", prescriptions);
+        prescriptionLock.writeLock().lock();
+        try {
+            rewriteSnapshot(prescriptionsFile, prescriptionJournal,
+                    () -> CSVHandler.writePrescriptions(prescriptionsFile, prescriptions));
+        } finally {
+            prescriptionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites a snapshot and discards its journal under the snapshot lock,
+     * so a compaction folding the old snapshot cannot publish its result
+     * over the rewrite after the journal's records are gone
+     */
+    private static void rewriteSnapshot(String filename, Journal journal, Runnable write) {
+        ReentrantLock snapshotLock = Journal.snapshotLock(filename);
+        snapshotLock.lock();
+        try {
+            write.run();
+            journal.discard();
+        } finally {
+            snapshotLock.unlock();
+        }
     }
 }
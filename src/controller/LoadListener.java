@@ -0,0 +1,18 @@
+package controller;
+
+/**
+ * Receives progress from HealthcareController.loadAllData as each data file
+ * is read and installed. Calls arrive on the loading threads, possibly
+ * several at once and in any order.
+ */
+public interface LoadListener {
+    /**
+     * Called once a file's records are installed and can be queried
+     *
+     * @param entity       the entity type loaded, e.g. "patients"
+     * @param rows         the number of records installed
+     * @param bytes        the size of the file read
+     * @param elapsedNanos the time taken to read, parse and install the file
+     */
+    void fileLoaded(String entity, int rows, long bytes, long elapsedNanos);
+}
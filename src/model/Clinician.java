@@ -24,6 +24,7 @@ public class Clinician extends User {
 
     public void setClinicianId(String clinicianId) {
         this.clinicianId = clinicianId;
+        touch();
     }
 
     public String getSpecialty() {
@@ -32,6 +33,7 @@ public class Clinician extends User {
 
     public void setSpecialty(String specialty) {
         this.specialty = specialty;
+        touch();
     }
 
     public String getLicenseNumber() {
@@ -40,6 +42,7 @@ public class Clinician extends User {
 
     public void setLicenseNumber(String licenseNumber) {
         this.licenseNumber = licenseNumber;
+        touch();
     }
 
     public String getClinicianType() {
@@ -48,6 +51,7 @@ public class Clinician extends User {
 
     public void setClinicianType(String clinicianType) {
         this.clinicianType = clinicianType;
+        touch();
     }
 
     @Override
@@ -28,6 +28,7 @@ public class Patient extends User {
 
     public void setPatientId(String patientId) {
         this.patientId = patientId;
+        touch();
     }
 
     public LocalDate getDateOfBirth() {
@@ -36,6 +37,7 @@ public class Patient extends User {
 
     public void setDateOfBirth(LocalDate dateOfBirth) {
         this.dateOfBirth = dateOfBirth;
+        touch();
     }
 
     public String getAddress() {
@@ -44,6 +46,7 @@ public class Patient extends User {
 
     public void setAddress(String address) {
         this.address = address;
+        touch();
     }
 
     public String getNhsNumber() {
@@ -52,6 +55,7 @@ public class Patient extends User {
 
     public void setNhsNumber(String nhsNumber) {
         this.nhsNumber = nhsNumber;
+        touch();
     }
 
     public String getGpId() {
@@ -60,6 +64,7 @@ public class Patient extends User {
 
     public void setGpId(String gpId) {
         this.gpId = gpId;
+        touch();
     }
 
     @Override
@@ -10,6 +10,8 @@ public abstract class User {
     private String email;
     private String phone;
     private String userType;
+    // Bumped by every setter so cached views of this user can tell they are stale
+    private int revision;
 
     public User(String userId, String firstName, String lastName, String email, String phone, String userType) {
         this.userId = userId;
@@ -27,6 +29,7 @@ public abstract class User {
 
     public void setUserId(String userId) {
         this.userId = userId;
+        touch();
     }
 
     public String getFirstName() {
@@ -35,6 +38,7 @@ public abstract class User {
 
     public void setFirstName(String firstName) {
         this.firstName = firstName;
+        touch();
     }
 
     public String getLastName() {
@@ -43,6 +47,7 @@ public abstract class User {
 
     public void setLastName(String lastName) {
         this.lastName = lastName;
+        touch();
     }
 
     public String getEmail() {
@@ -51,6 +56,7 @@ public abstract class User {
 
     public void setEmail(String email) {
         this.email = email;
+        touch();
     }
 
     public String getPhone() {
@@ -59,6 +65,7 @@ public abstract class User {
 
     public void setPhone(String phone) {
         this.phone = phone;
+        touch();
     }
 
     public String getUserType() {
@@ -67,6 +74,21 @@ public abstract class User {
 
     public void setUserType(String userType) {
         this.userType = userType;
+        touch();
+    }
+
+    /**
+     * Returns a counter that changes whenever a setter changes this user
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Marks this user as changed; subclasses call it from their own setters
+     */
+    protected void touch() {
+        revision++;
     }
 
     public String getFullName() {
@@ -0,0 +1,422 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import controller.HealthcareController;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.*;
+
+/**
+ * Headless HTTP service exposing a HealthcareController as read-only JSON endpoints.
+ * Requests are handled on virtual threads when the JVM provides them
+ * (Java 21 and later), otherwise on a fixed pool of platform threads.
+ *
+ * Endpoints (GET only; lists take offset and limit parameters):
+ *   /api/patients[/{id}]        ?gpId=
+ *   /api/clinicians[/{id}]      ?type=
+ *   /api/appointments[/{id}]    ?patientId= | ?clinicianId= [&amp;from=&amp;to=] | ?from=&amp;to=
+ *   /api/prescriptions[/{id}]   ?patientId= | ?clinicianId=
+ *   /api/referrals[/{id}]       ?patientId= | ?gpId= | ?specialistId=
+ * Date-times use ISO format, e.g. 2025-01-31T09:30.
+ */
+public class HealthcareServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1024;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final int STOP_DELAY_SECONDS = 2;
+
+    private final HealthcareController controller;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Answers one request; returns the JSON body, or null if nothing matches
+     */
+    private interface Route {
+        String respond(String id, Map<String, String> query);
+    }
+
+    public HealthcareServer(HealthcareController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Starts listening on the given port
+     */
+    public synchronized void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        executor = createExecutor();
+        server.setExecutor(executor);
+        register("/api/patients", this::patients);
+        register("/api/clinicians", this::clinicians);
+        register("/api/appointments", this::appointments);
+        register("/api/prescriptions", this::prescriptions);
+        register("/api/referrals", this::referrals);
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, giving those in progress a moment to finish
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(STOP_DELAY_SECONDS);
+            executor.shutdown();
+            try {
+                executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            server = null;
+        }
+    }
+
+    /**
+     * Uses a virtual thread per request where available, else a pool of platform threads
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            int threads = Math.max(16, Runtime.getRuntime().availableProcessors() * 8);
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "http-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void register(String context, Route route) {
+        server.createContext(context, exchange -> handle(exchange, context, route));
+    }
+
+    private void handle(HttpExchange exchange, String context, Route route) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String rest = path.substring(context.length());
+            String body;
+            if (rest.isEmpty() || rest.equals("/")) {
+                body = route.respond(null, parseQuery(exchange.getRequestURI().getRawQuery()));
+            } else if (rest.charAt(0) == '/' && rest.indexOf('/', 1) < 0) {
+                body = route.respond(rest.substring(1), parseQuery(exchange.getRequestURI().getRawQuery()));
+            } else {
+                body = null;
+            }
+            if (body == null) {
+                send(exchange, 404, error("Not found: " + path));
+            } else {
+                send(exchange, 200, body);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+            send(exchange, 500, error("Internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return new JsonWriter().beginObject().field("error", message).endObject().toString();
+    }
+
+    // ==================== Routes ====================
+
+    private String patients(String id, Map<String, String> query) {
+        if (id != null) {
+            Patient patient = controller.getPatientById(id);
+            return patient == null ? null : writePatient(new JsonWriter(), patient).toString();
+        }
+        int offset = offset(query);
+        int limit = limit(query);
+        List<Patient> result = query.containsKey("gpId")
+                ? page(controller.getPatientsByGp(query.get("gpId")), offset, limit)
+                : controller.getPatients(offset, limit);
+        JsonWriter json = new JsonWriter().beginArray();
+        for (Patient patient : result) {
+            writePatient(json, patient);
+        }
+        return json.endArray().toString();
+    }
+
+    private String clinicians(String id, Map<String, String> query) {
+        if (id != null) {
+            Clinician clinician = controller.getClinicianById(id);
+            return clinician == null ? null : writeClinician(new JsonWriter(), clinician).toString();
+        }
+        List<Clinician> all = query.containsKey("type")
+                ? controller.getCliniciansByType(query.get("type"))
+                : controller.getAllClinicians();
+        JsonWriter json = new JsonWriter().beginArray();
+        for (Clinician clinician : page(all, offset(query), limit(query))) {
+            writeClinician(json, clinician);
+        }
+        return json.endArray().toString();
+    }
+
+    private String appointments(String id, Map<String, String> query) {
+        if (id != null) {
+            Appointment appointment = controller.getAppointmentById(id);
+            return appointment == null ? null : writeAppointment(new JsonWriter(), appointment).toString();
+        }
+        int offset = offset(query);
+        int limit = limit(query);
+        boolean hasRange = query.containsKey("from") || query.containsKey("to");
+        List<Appointment> result;
+        if (query.containsKey("patientId")) {
+            result = page(controller.getAppointmentsByPatient(query.get("patientId")), offset, limit);
+        } else if (query.containsKey("clinicianId") && hasRange) {
+            result = page(controller.getClinicianAppointmentsBetween(query.get("clinicianId"),
+                    dateTime(query, "from"), dateTime(query, "to")), offset, limit);
+        } else if (query.containsKey("clinicianId")) {
+            result = page(controller.getAppointmentsByClinician(query.get("clinicianId")), offset, limit);
+        } else if (hasRange) {
+            result = page(controller.getAppointmentsBetween(dateTime(query, "from"), dateTime(query, "to")),
+                    offset, limit);
+        } else {
+            result = controller.getAppointments(offset, limit);
+        }
+        JsonWriter json = new JsonWriter().beginArray();
+        for (Appointment appointment : result) {
+            writeAppointment(json, appointment);
+        }
+        return json.endArray().toString();
+    }
+
+    private String prescriptions(String id, Map<String, String> query) {
+        if (id != null) {
+            Prescription prescription = controller.getPrescriptionById(id);
+            return prescription == null ? null : writePrescription(new JsonWriter(), prescription).toString();
+        }
+        int offset = offset(query);
+        int limit = limit(query);
+        List<Prescription> result;
+        if (query.containsKey("patientId")) {
+            result = page(controller.getPrescriptionsByPatient(query.get("patientId")), offset, limit);
+        } else if (query.containsKey("clinicianId")) {
+            result = page(controller.getPrescriptionsByClinician(query.get("clinicianId")), offset, limit);
+        } else {
+            result = controller.getPrescriptions(offset, limit);
+        }
+        JsonWriter json = new JsonWriter().beginArray();
+        for (Prescription prescription : result) {
+            writePrescription(json, prescription);
+        }
+        return json.endArray().toString();
+    }
+
+    private String referrals(String id, Map<String, String> query) {
+        if (id != null) {
+            Referral referral = controller.getReferralById(id);
+            return referral == null ? null : writeReferral(new JsonWriter(), referral).toString();
+        }
+        int offset = offset(query);
+        int limit = limit(query);
+        List<Referral> result;
+        if (query.containsKey("patientId")) {
+            result = page(controller.getReferralsByPatient(query.get("patientId")), offset, limit);
+        } else if (query.containsKey("gpId")) {
+            result = page(controller.getReferralsByGp(query.get("gpId")), offset, limit);
+        } else if (query.containsKey("specialistId")) {
+            result = page(controller.getReferralsBySpecialist(query.get("specialistId")), offset, limit);
+        } else {
+            result = controller.getReferrals(offset, limit);
+        }
+        JsonWriter json = new JsonWriter().beginArray();
+        for (Referral referral : result) {
+            writeReferral(json, referral);
+        }
+        return json.endArray().toString();
+    }
+
+    // ==================== JSON Mapping ====================
+
+    private static JsonWriter writePatient(JsonWriter json, Patient patient) {
+        return json.beginObject()
+                .field("patientId", patient.getPatientId())
+                .field("firstName", patient.getFirstName())
+                .field("lastName", patient.getLastName())
+                .field("email", patient.getEmail())
+                .field("phone", patient.getPhone())
+                .field("dateOfBirth", patient.getDateOfBirth())
+                .field("address", patient.getAddress())
+                .field("nhsNumber", patient.getNhsNumber())
+                .field("gpId", patient.getGpId())
+                .endObject();
+    }
+
+    private static JsonWriter writeClinician(JsonWriter json, Clinician clinician) {
+        return json.beginObject()
+                .field("clinicianId", clinician.getClinicianId())
+                .field("firstName", clinician.getFirstName())
+                .field("lastName", clinician.getLastName())
+                .field("email", clinician.getEmail())
+                .field("phone", clinician.getPhone())
+                .field("specialty", clinician.getSpecialty())
+                .field("licenseNumber", clinician.getLicenseNumber())
+                .field("clinicianType", clinician.getClinicianType())
+                .endObject();
+    }
+
+    private static JsonWriter writeAppointment(JsonWriter json, Appointment appointment) {
+        return json.beginObject()
+                .field("appointmentId", appointment.getAppointmentId())
+                .field("patientId", appointment.getPatientId())
+                .field("clinicianId", appointment.getClinicianId())
+                .field("appointmentDateTime", appointment.getAppointmentDateTime())
+                .field("appointmentType", appointment.getAppointmentType())
+                .field("status", appointment.getStatus())
+                .field("notes", appointment.getNotes())
+                .endObject();
+    }
+
+    private static JsonWriter writePrescription(JsonWriter json, Prescription prescription) {
+        return json.beginObject()
+                .field("prescriptionId", prescription.getPrescriptionId())
+                .field("patientId", prescription.getPatientId())
+                .field("clinicianId", prescription.getClinicianId())
+                .field("prescriptionDate", prescription.getPrescriptionDate())
+                .field("condition", prescription.getCondition())
+                .field("drugName", prescription.getDrugName())
+                .field("dosage", prescription.getDosage())
+                .field("duration", prescription.getDuration())
+                .field("instructions", prescription.getInstructions())
+                .endObject();
+    }
+
+    private static JsonWriter writeReferral(JsonWriter json, Referral referral) {
+        return json.beginObject()
+                .field("referralId", referral.getReferralId())
+                .field("patientId", referral.getPatientId())
+                .field("gpId", referral.getGpId())
+                .field("specialistId", referral.getSpecialistId())
+                .field("referralDate", referral.getReferralDate())
+                .field("reason", referral.getReason())
+                .field("urgency", referral.getUrgency())
+                .field("status", referral.getStatus())
+                .field("notes", referral.getNotes())
+                .endObject();
+    }
+
+    // ==================== Query Parameters ====================
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(decode(name), decode(value));
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int offset(Map<String, String> query) {
+        return Math.max(0, intParam(query, "offset", 0));
+    }
+
+    private static int limit(Map<String, String> query) {
+        return Math.min(MAX_LIMIT, Math.max(0, intParam(query, "limit", DEFAULT_LIMIT)));
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Reads a date-time parameter; a missing bound is open-ended
+     */
+    private static LocalDateTime dateTime(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return "from".equals(name) ? LocalDateTime.MIN : LocalDateTime.MAX;
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    private static <T> List<T> page(List<T> source, int offset, int limit) {
+        int from = Math.min(offset, source.size());
+        int to = from + Math.min(limit, source.size() - from);
+        return new ArrayList<>(source.subList(from, to));
+    }
+
+    // ==================== Entry Point ====================
+
+    /**
+     * Loads the data directory and serves it over HTTP.
+     * The port comes from the first argument, defaulting to 8080.
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        HealthcareController controller = new HealthcareController();
+        controller.setJournaling(Boolean.getBoolean("hms.journal"));
+        controller.setColumnarStorage(Boolean.getBoolean("hms.columnar"));
+        controller.setAppendDurability(Long.getLong("hms.commitWindowMillis", 2),
+                Boolean.getBoolean("hms.fsync"), !Boolean.getBoolean("hms.asyncCommit"));
+        controller.loadAllData("data", true);
+
+        HealthcareServer server = new HealthcareServer(controller);
+        try {
+            server.start(port);
+        } catch (IOException e) {
+            System.err.println("Error starting server on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "http-server-shutdown"));
+        System.out.println("Healthcare service listening on port " + port);
+    }
+}
@@ -0,0 +1,121 @@
+package server;
+
+/**
+ * Minimal streaming JSON builder for the HTTP service.
+ * Commas between members and elements are inserted automatically.
+ */
+class JsonWriter {
+    private final StringBuilder out;
+    private boolean first = true;
+
+    JsonWriter() {
+        this.out = new StringBuilder(256);
+    }
+
+    JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        out.append('}');
+        first = false;
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    /**
+     * Writes a member name; the next value, object or array becomes its value
+     */
+    JsonWriter name(String name) {
+        separate();
+        string(name);
+        out.append(':');
+        first = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or null; other objects are written via toString()
+     */
+    JsonWriter value(Object value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value.toString());
+        }
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        separate();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    /**
+     * Writes a name and a string value in one call
+     */
+    JsonWriter field(String name, Object value) {
+        return name(name).value(value);
+    }
+
+    private void separate() {
+        if (!first) {
+            out.append(',');
+        }
+    }
+
+    private void string(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,168 @@
+package util;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import model.Appointment;
+
+/**
+ * Time-ordered index of appointments keyed by appointment date and time.
+ * Supports range and "next N" queries in O(log n + k).
+ * Callers must remove an appointment before changing its date and time.
+ *
+ * For conflict checks every appointment is taken to last one slot of a
+ * given length from its start time; since all slots have the same length,
+ * the appointments overlapping a time span are exactly those starting in a
+ * window around it, found with one range lookup on the ordered start times.
+ * Cancelled appointments never conflict.
+ */
+public class AppointmentTimeline {
+    private NavigableMap<LocalDateTime, List<Appointment>> slots;
+    private int size;
+
+    public AppointmentTimeline() {
+        this.slots = new TreeMap<>();
+    }
+
+    /**
+     * Adds an appointment at its current date and time
+     */
+    public void add(Appointment appointment) {
+        slots.computeIfAbsent(appointment.getAppointmentDateTime(), t -> new ArrayList<>(2)).add(appointment);
+        size++;
+    }
+
+    /**
+     * Removes an appointment from the slot of its current date and time
+     */
+    public boolean remove(Appointment appointment) {
+        LocalDateTime key = appointment.getAppointmentDateTime();
+        List<Appointment> atTime = slots.get(key);
+        if (atTime == null || !atTime.remove(appointment)) {
+            return false;
+        }
+        if (atTime.isEmpty()) {
+            slots.remove(key);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns appointments from (inclusive) up to (exclusive) the given times, in time order
+     */
+    public List<Appointment> between(LocalDateTime from, LocalDateTime to) {
+        List<Appointment> result = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return result;
+        }
+        for (List<Appointment> atTime : slots.subMap(from, true, to, false).values()) {
+            result.addAll(atTime);
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to limit appointments at or after the given time that are not cancelled
+     */
+    public List<Appointment> upcoming(LocalDateTime from, int limit) {
+        List<Appointment> result = new ArrayList<>(Math.max(0, Math.min(limit, size)));
+        for (Map.Entry<LocalDateTime, List<Appointment>> entry : slots.tailMap(from, true).entrySet()) {
+            for (Appointment apt : entry.getValue()) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                if (!"CANCELLED".equals(apt.getStatus())) {
+                    result.add(apt);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to limit appointments from (inclusive) up to (exclusive) the
+     * given times that pass the filter, in time order
+     */
+    public List<Appointment> find(LocalDateTime from, LocalDateTime to, Predicate<? super Appointment> filter, int limit) {
+        List<Appointment> result = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return result;
+        }
+        for (List<Appointment> atTime : slots.subMap(from, true, to, false).values()) {
+            for (Appointment apt : atTime) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                if (filter.test(apt)) {
+                    result.add(apt);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first appointment, other than ignore, whose slot overlaps
+     * the span of the given length starting at start, or null if it is free
+     */
+    public Appointment firstConflict(LocalDateTime start, int lengthMinutes, int slotMinutes, Appointment ignore) {
+        LocalDateTime windowStart = start.minusMinutes(slotMinutes);
+        LocalDateTime windowEnd = start.plusMinutes(lengthMinutes);
+        for (List<Appointment> atTime : slots.subMap(windowStart, false, windowEnd, false).values()) {
+            for (Appointment apt : atTime) {
+                if (apt != ignore && !"CANCELLED".equals(apt.getStatus())) {
+                    return apt;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the earliest start at or after the given time for a span of the
+     * given length that overlaps no appointment slot other than ignore's.
+     * Walks forward from the last appointment that could overlap it, so the
+     * cost is O(log n) plus the number of back-to-back appointments skipped.
+     */
+    public LocalDateTime firstFreeSlot(LocalDateTime after, int lengthMinutes, int slotMinutes, Appointment ignore) {
+        LocalDateTime candidate = after;
+        LocalDateTime windowStart = after.minusMinutes(slotMinutes);
+        for (Map.Entry<LocalDateTime, List<Appointment>> entry : slots.tailMap(windowStart, false).entrySet()) {
+            LocalDateTime start = entry.getKey();
+            if (!start.isBefore(candidate.plusMinutes(lengthMinutes))) {
+                break;
+            }
+            if (!isBooked(entry.getValue(), ignore)) {
+                continue;
+            }
+            LocalDateTime end = start.plusMinutes(slotMinutes);
+            if (end.isAfter(candidate)) {
+                candidate = end;
+            }
+        }
+        return candidate;
+    }
+
+    private static boolean isBooked(List<Appointment> atTime, Appointment ignore) {
+        for (Appointment apt : atTime) {
+            if (apt != ignore && !"CANCELLED".equals(apt.getStatus())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        slots.clear();
+        size = 0;
+    }
+}
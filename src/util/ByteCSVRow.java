@@ -0,0 +1,182 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Cursor over the CSV records in a region of raw UTF-8 bytes.
+ * Delimiters are found by scanning bytes, which is safe for UTF-8 because
+ * ',', '"' and line breaks never occur inside a multi-byte character.
+ * Strings are decoded only for fields that are read through get(); date
+ * fields are parsed directly from the bytes, and shared fields are looked
+ * up by their bytes in a small cache before any String is built.
+ * Not thread-safe.
+ */
+class ByteCSVRow implements CSVRow {
+    private final ByteBuffer buffer;
+    private final DateFields.Chars chars;
+    private final int limit;
+    private int position;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private int count;
+    private byte[] scratch = new byte[256];
+    // Direct-mapped cache of shared field values keyed by their raw bytes
+    private static final int SHARED_SLOTS = 512;
+    private final byte[][] sharedKeys = new byte[SHARED_SLOTS][];
+    private final String[] sharedValues = new String[SHARED_SLOTS];
+
+    /**
+     * Creates a cursor over the records from the buffer's start to its limit
+     */
+    ByteCSVRow(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.chars = buffer::get;
+        this.limit = buffer.limit();
+        this.position = 0;
+    }
+
+    /**
+     * Advances to the next record. Returns false at the end of the region.
+     */
+    boolean next() {
+        if (position >= limit) {
+            return false;
+        }
+        count = 0;
+        int pos = position;
+        while (true) {
+            if (count == starts.length) {
+                grow();
+            }
+            int start = pos;
+            while (start < limit && isBlank(buffer.get(start))) {
+                start++;
+            }
+            if (start < limit && buffer.get(start) == '"') {
+                boolean hasEscapes = false;
+                int close = start + 1;
+                while (close < limit) {
+                    if (buffer.get(close) == '"') {
+                        if (close + 1 < limit && buffer.get(close + 1) == '"') {
+                            hasEscapes = true;
+                            close += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    close++;
+                }
+                starts[count] = start + 1;
+                ends[count] = Math.min(close, limit);
+                escaped[count] = hasEscapes;
+                pos = close + 1;
+                while (pos < limit && buffer.get(pos) != ',' && buffer.get(pos) != '\n') {
+                    pos++;
+                }
+            } else {
+                pos = start;
+                while (pos < limit && buffer.get(pos) != ',' && buffer.get(pos) != '\n') {
+                    pos++;
+                }
+                int end = pos;
+                while (end > start && isBlank(buffer.get(end - 1))) {
+                    end--;
+                }
+                starts[count] = start;
+                ends[count] = end;
+                escaped[count] = false;
+            }
+            count++;
+            if (pos >= limit || buffer.get(pos) == '\n') {
+                position = pos + 1;
+                return true;
+            }
+            pos++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public String get(int index) {
+        int length = ends[index] - starts[index];
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(starts[index] + i);
+        }
+        String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        return escaped[index] ? value.replace("\"\"", "\"") : value;
+    }
+
+    @Override
+    public String getShared(int index) {
+        if (escaped[index]) {
+            return ValueDictionary.getInstance().intern(get(index));
+        }
+        int start = starts[index];
+        int length = ends[index] - start;
+        int hash = length;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer.get(start + i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (SHARED_SLOTS - 1);
+        byte[] key = sharedKeys[slot];
+        if (key != null && matches(key, start, length)) {
+            return sharedValues[slot];
+        }
+        String value = ValueDictionary.getInstance().intern(get(index));
+        key = new byte[length];
+        for (int i = 0; i < length; i++) {
+            key[i] = buffer.get(start + i);
+        }
+        sharedKeys[slot] = key;
+        sharedValues[slot] = value;
+        return value;
+    }
+
+    private boolean matches(byte[] key, int start, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public LocalDate getDate(int index) {
+        LocalDate date = DateFields.date(chars, starts[index], ends[index]);
+        return date != null ? date : LocalDate.parse(get(index), DateFields.DATE_FORMATTER);
+    }
+
+    @Override
+    public LocalDateTime getDateTime(int index) {
+        LocalDateTime dateTime = DateFields.dateTime(chars, starts[index], ends[index]);
+        return dateTime != null ? dateTime : LocalDateTime.parse(get(index), DateFields.DATETIME_FORMATTER);
+    }
+
+    private static boolean isBlank(byte b) {
+        // Spaces, tabs and the CR of a CRLF; never LF, which ends the record
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private void grow() {
+        int capacity = starts.length * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        escaped = Arrays.copyOf(escaped, capacity);
+    }
+}
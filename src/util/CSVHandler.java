@@ -1,11 +1,15 @@
 package util;
 
 import java.io.*;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import model.*;
 
 /**
@@ -15,231 +19,505 @@ public class CSVHandler {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    public static final String PATIENTS_HEADER =
+        "PatientId,FirstName,LastName,Email,Phone,DateOfBirth,Address,NhsNumber,GpId";
+    public static final String CLINICIANS_HEADER =
+        "ClinicianId,FirstName,LastName,Email,Phone,Specialty,LicenseNumber,ClinicianType";
+    public static final String APPOINTMENTS_HEADER =
+        "AppointmentId,PatientId,ClinicianId,AppointmentDateTime,AppointmentType,Status,Notes";
+    public static final String PRESCRIPTIONS_HEADER =
+        "PrescriptionId,PatientId,ClinicianId,PrescriptionDate,Condition,DrugName,Dosage,Duration,Instructions";
+    public static final String REFERRALS_HEADER =
+        "ReferralId,PatientId,GpId,SpecialistId,ReferralDate,Reason,Urgency,Status,Notes";
+
+    private static volatile boolean columnarStore;
+
+    /**
+     * Builds one entity from a tokenized CSV record
+     */
+    interface RowMapper<T> {
+        T map(CSVRow row);
+    }
+
+    /**
+     * Reads or writes the columnar copy of a CSV file
+     */
+    private interface ColumnarReader<T> {
+        List<T> read(String filename) throws IOException;
+    }
+
+    private interface ColumnarWriter<T> {
+        void write(String filename, List<T> records) throws IOException;
+    }
+
+    /**
+     * Keeps a binary columnar copy of the appointments, prescriptions and
+     * referrals files. The copy is read instead of the CSV while it is
+     * current, and rebuilt whenever the CSV is read or rewritten.
+     */
+    public static void setColumnarStore(boolean enabled) {
+        columnarStore = enabled;
+    }
+
+    public static boolean isColumnarStore() {
+        return columnarStore;
+    }
+
     /**
      * Reads patients from CSV file
      */
     public static List<Patient> readPatients(String filename) {
-        List<Patient> patients = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
-                }
-                String[] values = line.split(",");
-                if (values.length >= 9) {
-                    Patient patient = new Patient(
-                        values[0].trim(), // patientId
-                        values[1].trim(), // firstName
-                        values[2].trim(), // lastName
-                        values[3].trim(), // email
-                        values[4].trim(), // phone
-                        LocalDate.parse(values[5].trim(), DATE_FORMATTER), // dateOfBirth
-                        values[6].trim(), // address
-                        values[7].trim(), // nhsNumber
-                        values[8].trim()  // gpId
-                    );
-                    patients.add(patient);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading patients file: " + e.getMessage());
-        }
-        return patients;
+        return readPatients(filename, false);
+    }
+
+    /**
+     * Reads patients from CSV file, parsing large files in parallel chunks if requested
+     */
+    public static List<Patient> readPatients(String filename, boolean parallel) {
+        return readRecords(filename, 9, "patients", CSVHandler::toPatient, parallel);
     }
 
     /**
      * Reads clinicians from CSV file
      */
     public static List<Clinician> readClinicians(String filename) {
-        List<Clinician> clinicians = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
-                }
-                String[] values = line.split(",");
-                if (values.length >= 8) {
-                    Clinician clinician = new Clinician(
-                        values[0].trim(), // clinicianId
-                        values[1].trim(), // firstName
-                        values[2].trim(), // lastName
-                        values[3].trim(), // email
-                        values[4].trim(), // phone
-                        values[5].trim(), // specialty
-                        values[6].trim(), // licenseNumber
-                        values[7].trim()  // clinicianType
-                    );
-                    clinicians.add(clinician);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading clinicians file: " + e.getMessage());
-        }
-        return clinicians;
+        return readClinicians(filename, false);
+    }
+
+    /**
+     * Reads clinicians from CSV file, parsing large files in parallel chunks if requested
+     */
+    public static List<Clinician> readClinicians(String filename, boolean parallel) {
+        return readRecords(filename, 8, "clinicians", CSVHandler::toClinician, parallel);
     }
 
     /**
      * Reads admin staff from CSV file
      */
     public static List<AdminStaff> readAdminStaff(String filename) {
-        List<AdminStaff> staffList = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
-                }
-                String[] values = line.split(",");
-                if (values.length >= 7) {
-                    AdminStaff staff = new AdminStaff(
-                        values[0].trim(), // staffId
-                        values[1].trim(), // firstName
-                        values[2].trim(), // lastName
-                        values[3].trim(), // email
-                        values[4].trim(), // phone
-                        values[5].trim(), // role
-                        values[6].trim()  // department
-                    );
-                    staffList.add(staff);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading admin staff file: " + e.getMessage());
-        }
-        return staffList;
+        return readAdminStaff(filename, false);
+    }
+
+    /**
+     * Reads admin staff from CSV file, parsing large files in parallel chunks if requested
+     */
+    public static List<AdminStaff> readAdminStaff(String filename, boolean parallel) {
+        return readRecords(filename, 7, "admin staff", CSVHandler::toAdminStaff, parallel);
     }
 
     /**
      * Reads appointments from CSV file
      */
     public static List<Appointment> readAppointments(String filename) {
-        List<Appointment> appointments = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
-                }
-                String[] values = line.split(",");
-                if (values.length >= 7) {
-                    Appointment appointment = new Appointment(
-                        values[0].trim(), // appointmentId
-                        values[1].trim(), // patientId
-                        values[2].trim(), // clinicianId
-                        LocalDateTime.parse(values[3].trim(), DATETIME_FORMATTER), // appointmentDateTime
-                        values[4].trim(), // appointmentType
-                        values[5].trim(), // status
-                        values[6].trim()  // notes
-                    );
-                    appointments.add(appointment);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading appointments file: " + e.getMessage());
-        }
-        return appointments;
+        return readAppointments(filename, false);
+    }
+
+    /**
+     * Reads appointments from CSV file, parsing large files in parallel chunks if requested
+     */
+    public static List<Appointment> readAppointments(String filename, boolean parallel) {
+        return readSnapshot(filename, 7, "appointments", CSVHandler::toAppointment, parallel,
+                ColumnarStore::readAppointments, ColumnarStore::writeAppointments);
     }
 
     /**
      * Reads prescriptions from CSV file
      */
     public static List<Prescription> readPrescriptions(String filename) {
-        List<Prescription> prescriptions = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
-                }
-                String[] values = line.split(",");
-                if (values.length >= 9) {
-                    Prescription prescription = new Prescription(
-                        values[0].trim(), // prescriptionId
-                        values[1].trim(), // patientId
-                        values[2].trim(), // clinicianId
-                        LocalDate.parse(values[3].trim(), DATE_FORMATTER), // prescriptionDate
-                        values[4].trim(), // condition
-                        values[5].trim(), // drugName
-                        values[6].trim(), // dosage
-                        values[7].trim(), // duration
-                        values[8].trim()  // instructions
-                    );
-                    prescriptions.add(prescription);
-                }
+        return readPrescriptions(filename, false);
+    }
+
+    /**
+     * Reads prescriptions from CSV file, parsing large files in parallel chunks if requested
+     */
+    public static List<Prescription> readPrescriptions(String filename, boolean parallel) {
+        return readSnapshot(filename, 9, "prescriptions", CSVHandler::toPrescription, parallel,
+                ColumnarStore::readPrescriptions, ColumnarStore::writePrescriptions);
+    }
+
+    /**
+     * Reads referrals from CSV file
+     */
+    public static List<Referral> readReferrals(String filename) {
+        return readReferrals(filename, false);
+    }
+
+    /**
+     * Reads referrals from CSV file, parsing large files in parallel chunks if requested
+     */
+    public static List<Referral> readReferrals(String filename, boolean parallel) {
+        return readSnapshot(filename, 9, "referrals", CSVHandler::toReferral, parallel,
+                ColumnarStore::readReferrals, ColumnarStore::writeReferrals);
+    }
+
+    /**
+     * Reads a snapshot from its columnar copy if that is enabled and current;
+     * otherwise reads the CSV and, if enabled, rebuilds the columnar copy
+     */
+    private static <T> List<T> readSnapshot(String filename, int minFields, String entityName, RowMapper<T> mapper,
+                                            boolean parallel, ColumnarReader<T> columnarReader,
+                                            ColumnarWriter<T> columnarWriter) {
+        if (!columnarStore) {
+            return readRecords(filename, minFields, entityName, mapper, parallel);
+        }
+        GroupCommitWriter.getInstance().flush(filename);
+        if (ColumnarStore.isCurrent(filename)) {
+            try {
+                return columnarReader.read(filename);
+            } catch (IOException e) {
+                System.err.println("Error reading columnar " + entityName + " file, reading CSV instead: "
+                        + e.getMessage());
             }
+        }
+        File csv = new File(filename);
+        long length = csv.length();
+        long modified = csv.lastModified();
+        List<T> records = readRecords(filename, minFields, entityName, mapper, parallel);
+        // Only cache what was read if nothing was appended meanwhile
+        if (csv.isFile() && csv.length() == length && csv.lastModified() == modified) {
+            writeColumnar(filename, records, entityName, columnarWriter);
+        }
+        return records;
+    }
+
+    private static <T> void writeColumnar(String filename, List<T> records, String entityName,
+                                          ColumnarWriter<T> columnarWriter) {
+        try {
+            columnarWriter.write(filename, records);
         } catch (IOException e) {
-            System.err.println("Error reading prescriptions file: " + e.getMessage());
+            System.err.println("Error writing columnar " + entityName + " file: " + e.getMessage());
         }
-        return prescriptions;
     }
 
     /**
-     * Reads referrals from CSV file
+     * Reads every record after the header straight from the file's bytes,
+     * in parallel chunks for large files when requested
      */
-    public static List<Referral> readReferrals(String filename) {
-        List<Referral> referrals = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
+    private static <T> List<T> readRecords(String filename, int minFields, String entityName,
+                                           RowMapper<T> mapper, boolean parallel) {
+        GroupCommitWriter.getInstance().flush(filename);
+        try {
+            return ChannelCSVReader.read(filename, minFields, entityName, mapper, parallel);
+        } catch (IOException e) {
+            System.err.println("Error reading " + entityName + " file: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads a patients snapshot and replays its journal over it
+     */
+    public static List<Patient> loadPatients(String filename, boolean parallel) {
+        return underSnapshotLock(filename, () -> replayPatients(filename, readPatients(filename, parallel)));
+    }
+
+    /**
+     * Reads an appointments snapshot and replays its journal over it
+     */
+    public static List<Appointment> loadAppointments(String filename, boolean parallel) {
+        return underSnapshotLock(filename,
+                () -> replayAppointments(filename, readAppointments(filename, parallel)));
+    }
+
+    /**
+     * Reads a prescriptions snapshot and replays its journal over it
+     */
+    public static List<Prescription> loadPrescriptions(String filename, boolean parallel) {
+        return underSnapshotLock(filename,
+                () -> replayPrescriptions(filename, readPrescriptions(filename, parallel)));
+    }
+
+    /**
+     * Reads a referrals snapshot and replays its journal over it
+     */
+    public static List<Referral> loadReferrals(String filename, boolean parallel) {
+        return underSnapshotLock(filename, () -> replayReferrals(filename, readReferrals(filename, parallel)));
+    }
+
+    /**
+     * Runs a read and replay while holding the file's snapshot lock, so a
+     * compaction cannot replace the snapshot or move journal records between them
+     */
+    private static <T> List<T> underSnapshotLock(String filename, Supplier<List<T>> load) {
+        ReentrantLock snapshotLock = Journal.snapshotLock(filename);
+        snapshotLock.lock();
+        try {
+            return load.get();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the journal of a patients file to the patients read from its snapshot
+     */
+    public static List<Patient> replayPatients(String filename, List<Patient> patients) {
+        return replayJournal(filename, patients, 9, "patients", CSVHandler::toPatient, Patient::getPatientId);
+    }
+
+    /**
+     * Applies the journal of an appointments file to the appointments read from its snapshot
+     */
+    public static List<Appointment> replayAppointments(String filename, List<Appointment> appointments) {
+        return replayJournal(filename, appointments, 7, "appointments", CSVHandler::toAppointment,
+                Appointment::getAppointmentId);
+    }
+
+    /**
+     * Applies the journal of a prescriptions file to the prescriptions read from its snapshot
+     */
+    public static List<Prescription> replayPrescriptions(String filename, List<Prescription> prescriptions) {
+        return replayJournal(filename, prescriptions, 9, "prescriptions", CSVHandler::toPrescription,
+                Prescription::getPrescriptionId);
+    }
+
+    /**
+     * Applies the journal of a referrals file to the referrals read from its snapshot
+     */
+    public static List<Referral> replayReferrals(String filename, List<Referral> referrals) {
+        return replayJournal(filename, referrals, 9, "referrals", CSVHandler::toReferral, Referral::getReferralId);
+    }
+
+    /**
+     * Replays upserts and deletes in journal order. An update replaces the
+     * entity in place, so snapshot order is kept; new entities are appended.
+     */
+    private static <T> List<T> replayJournal(String filename, List<T> entities, int minFields, String entityName,
+                                             RowMapper<T> mapper, Function<T, String> idOf) {
+        String[] journalFiles = {Journal.compactingPath(filename), Journal.journalPath(filename)};
+        if (!new File(journalFiles[0]).exists() && !new File(journalFiles[1]).exists()) {
+            return entities;
+        }
+        Map<String, Integer> positions = new HashMap<>(entities.size() * 2);
+        for (int i = 0; i < entities.size(); i++) {
+            positions.put(idOf.apply(entities.get(i)), i);
+        }
+        int[] replayed = new int[1];
+        Journal.Visitor visitor = new Journal.Visitor() {
+            @Override
+            public void upsert(CSVRow row) {
+                if (row.size() < minFields) {
+                    return;
+                }
+                T entity;
+                try {
+                    entity = mapper.map(row);
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping malformed " + entityName + " journal record: " + e.getMessage());
+                    return;
                 }
-                String[] values = line.split(",");
-                if (values.length >= 9) {
-                    Referral referral = new Referral(
-                        values[0].trim(), // referralId
-                        values[1].trim(), // patientId
-                        values[2].trim(), // gpId
-                        values[3].trim(), // specialistId
-                        LocalDate.parse(values[4].trim(), DATE_FORMATTER), // referralDate
-                        values[5].trim(), // reason
-                        values[6].trim(), // urgency
-                        values[7].trim(), // status
-                        values[8].trim()  // notes
-                    );
-                    referrals.add(referral);
+                Integer position = positions.get(idOf.apply(entity));
+                if (position != null) {
+                    entities.set(position, entity);
+                } else {
+                    positions.put(idOf.apply(entity), entities.size());
+                    entities.add(entity);
                 }
+                replayed[0]++;
             }
-        } catch (IOException e) {
-            System.err.println("Error reading referrals file: " + e.getMessage());
+
+            @Override
+            public void delete(String id) {
+                Integer position = positions.remove(id);
+                if (position != null) {
+                    entities.set(position, null);
+                }
+                replayed[0]++;
+            }
+            };
+        // A journal being compacted holds older records than the live one
+        for (String journalFile : journalFiles) {
+            try {
+                Journal.replay(journalFile, visitor);
+            } catch (IOException e) {
+                System.err.println("Error replaying " + entityName + " journal: " + e.getMessage());
+            }
+        }
+        entities.removeIf(Objects::isNull);
+        System.out.println("Replayed " + replayed[0] + " " + entityName + " journal records");
+        return entities;
+    }
+
+    private static Patient toPatient(CSVRow values) {
+        return new Patient(
+            values.get(0), // patientId
+            values.get(1), // firstName
+            values.get(2), // lastName
+            values.get(3), // email
+            values.get(4), // phone
+            values.getDate(5), // dateOfBirth
+            values.get(6), // address
+            values.get(7), // nhsNumber
+            values.getShared(8)  // gpId
+        );
+    }
+
+    private static Clinician toClinician(CSVRow values) {
+        return new Clinician(
+            values.get(0), // clinicianId
+            values.get(1), // firstName
+            values.get(2), // lastName
+            values.get(3), // email
+            values.get(4), // phone
+            values.getShared(5), // specialty
+            values.get(6), // licenseNumber
+            values.getShared(7)  // clinicianType
+        );
+    }
+
+    private static AdminStaff toAdminStaff(CSVRow values) {
+        return new AdminStaff(
+            values.get(0), // staffId
+            values.get(1), // firstName
+            values.get(2), // lastName
+            values.get(3), // email
+            values.get(4), // phone
+            values.get(5), // role
+            values.get(6)  // department
+        );
+    }
+
+    private static Appointment toAppointment(CSVRow values) {
+        return new Appointment(
+            values.get(0), // appointmentId
+            values.get(1), // patientId
+            values.getShared(2), // clinicianId
+            values.getDateTime(3), // appointmentDateTime
+            values.getShared(4), // appointmentType
+            values.getShared(5), // status
+            values.get(6)  // notes
+        );
+    }
+
+    private static Prescription toPrescription(CSVRow values) {
+        return new Prescription(
+            values.get(0), // prescriptionId
+            values.get(1), // patientId
+            values.getShared(2), // clinicianId
+            values.getSharedDate(3), // prescriptionDate
+            values.get(4), // condition
+            values.getShared(5), // drugName
+            values.getShared(6), // dosage
+            values.getShared(7), // duration
+            values.get(8)  // instructions
+        );
+    }
+
+    private static Referral toReferral(CSVRow values) {
+        return new Referral(
+            values.get(0), // referralId
+            values.get(1), // patientId
+            values.getShared(2), // gpId
+            values.getShared(3), // specialistId
+            values.getSharedDate(4), // referralDate
+            values.get(5), // reason
+            values.getShared(6), // urgency
+            values.getShared(7), // status
+            values.get(8)  // notes
+        );
+    }
+
+    /**
+     * Formats a clinician as a CSV record, quoting fields where needed
+     */
+    public static String formatClinician(Clinician clinician) {
+        return join(
+            clinician.getClinicianId(),
+            clinician.getFirstName(),
+            clinician.getLastName(),
+            clinician.getEmail(),
+            clinician.getPhone(),
+            clinician.getSpecialty(),
+            clinician.getLicenseNumber(),
+            clinician.getClinicianType());
+    }
+
+    /**
+     * Formats a patient as a CSV record, quoting fields where needed
+     */
+    public static String formatPatient(Patient patient) {
+        return join(
+            patient.getPatientId(),
+            patient.getFirstName(),
+            patient.getLastName(),
+            patient.getEmail(),
+            patient.getPhone(),
+            patient.getDateOfBirth().format(DATE_FORMATTER),
+            patient.getAddress(),
+            patient.getNhsNumber(),
+            patient.getGpId());
+    }
+
+    /**
+     * Formats an appointment as a CSV record, quoting fields where needed
+     */
+    public static String formatAppointment(Appointment appointment) {
+        return join(
+            appointment.getAppointmentId(),
+            appointment.getPatientId(),
+            appointment.getClinicianId(),
+            appointment.getAppointmentDateTime().format(DATETIME_FORMATTER),
+            appointment.getAppointmentType(),
+            appointment.getStatus(),
+            appointment.getNotes());
+    }
+
+    /**
+     * Formats a prescription as a CSV record, quoting fields where needed
+     */
+    public static String formatPrescription(Prescription prescription) {
+        return join(
+            prescription.getPrescriptionId(),
+            prescription.getPatientId(),
+            prescription.getClinicianId(),
+            prescription.getPrescriptionDate().format(DATE_FORMATTER),
+            prescription.getCondition(),
+            prescription.getDrugName(),
+            prescription.getDosage(),
+            prescription.getDuration(),
+            prescription.getInstructions());
+    }
+
+    /**
+     * Formats a referral as a CSV record, quoting fields where needed
+     */
+    public static String formatReferral(Referral referral) {
+        return join(
+            referral.getReferralId(),
+            referral.getPatientId(),
+            referral.getGpId(),
+            referral.getSpecialistId(),
+            referral.getReferralDate().format(DATE_FORMATTER),
+            referral.getReason(),
+            referral.getUrgency(),
+            referral.getStatus(),
+            referral.getNotes());
+    }
+
+    private static String join(String... fields) {
+        StringBuilder record = new StringBuilder(128);
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                record.append(',');
+            }
+            record.append(CSVTokenizer.escape(fields[i]));
         }
-        return referrals;
+        return record.toString();
     }
 
     /**
      * Writes patients to CSV file
      */
     public static void writePatients(String filename, List<Patient> patients) {
+        GroupCommitWriter.getInstance().release(filename);
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
             // Write header
-            bw.write("PatientId,FirstName,LastName,Email,Phone,DateOfBirth,Address,NhsNumber,GpId\n");
-            
+            bw.write(PATIENTS_HEADER + "\n");
+
             // Write data
             for (Patient patient : patients) {
-                bw.write(String.format("%s,%s,%s,%s,%s,%s,%s,%s,%s\n",
-                    patient.getPatientId(),
-                    patient.getFirstName(),
-                    patient.getLastName(),
-                    patient.getEmail(),
-                    patient.getPhone(),
-                    patient.getDateOfBirth().format(DATE_FORMATTER),
-                    patient.getAddress(),
-                    patient.getNhsNumber(),
-                    patient.getGpId()));
+                bw.write(formatPatient(patient));
+                bw.write('\n');
             }
         } catch (IOException e) {
             System.err.println("Error writing patients file: " + e.getMessage());
@@ -250,79 +528,150 @@ public class CSVHandler {
      * Writes prescriptions to CSV file
      */
     public static void writePrescriptions(String filename, List<Prescription> prescriptions) {
+        GroupCommitWriter.getInstance().release(filename);
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
             // Write header
-            bw.write("PrescriptionId,PatientId,ClinicianId,PrescriptionDate,Condition,DrugName,Dosage,Duration,Instructions\n");
-            
+            bw.write(PRESCRIPTIONS_HEADER + "\n");
+
             // Write data
             for (Prescription prescription : prescriptions) {
-                bw.write(prescription.toCSV() + "\n");
+                bw.write(formatPrescription(prescription));
+                bw.write('\n');
             }
         } catch (IOException e) {
             System.err.println("Error writing prescriptions file: " + e.getMessage());
         }
+        if (columnarStore) {
+            writeColumnar(filename, prescriptions, "prescriptions", ColumnarStore::writePrescriptions);
+        }
     }
 
     /**
-     * Appends a prescription to CSV file
+     * Appends a prescription to CSV file through the group-commit writer
      */
     public static void appendPrescription(String filename, Prescription prescription) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true))) {
-            bw.write(prescription.toCSV() + "\n");
-        } catch (IOException e) {
-            System.err.println("Error appending prescription: " + e.getMessage());
-        }
+        GroupCommitWriter.getInstance().awaitCommit(submitPrescription(filename, prescription));
+    }
+
+    /**
+     * Appends many prescriptions to CSV file with a single group-commit write
+     */
+    public static void appendPrescriptions(String filename, List<Prescription> prescriptions) {
+        GroupCommitWriter.getInstance().awaitCommit(submitPrescriptions(filename, prescriptions));
+    }
+
+    /**
+     * Queues a prescription for appending to CSV file without waiting for it
+     * to be written; see GroupCommitWriter.awaitCommit
+     */
+    public static GroupCommitWriter.Commit submitPrescription(String filename, Prescription prescription) {
+        return GroupCommitWriter.getInstance().submit(filename, formatPrescription(prescription) + "\n");
+    }
+
+    /**
+     * Queues many prescriptions as a single append to CSV file without waiting
+     */
+    public static GroupCommitWriter.Commit submitPrescriptions(String filename, List<Prescription> prescriptions) {
+        return submitAll(filename, prescriptions, CSVHandler::formatPrescription);
     }
 
     /**
      * Writes referrals to CSV file
      */
     public static void writeReferrals(String filename, List<Referral> referrals) {
+        GroupCommitWriter.getInstance().release(filename);
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
             // Write header
-            bw.write("ReferralId,PatientId,GpId,SpecialistId,ReferralDate,Reason,Urgency,Status,Notes\n");
-            
+            bw.write(REFERRALS_HEADER + "\n");
+
             // Write data
             for (Referral referral : referrals) {
-                bw.write(referral.toCSV() + "\n");
+                bw.write(formatReferral(referral));
+                bw.write('\n');
             }
         } catch (IOException e) {
             System.err.println("Error writing referrals file: " + e.getMessage());
         }
+        if (columnarStore) {
+            writeColumnar(filename, referrals, "referrals", ColumnarStore::writeReferrals);
+        }
     }
 
     /**
-     * Appends a referral to CSV file
+     * Appends a referral to CSV file through the group-commit writer
      */
     public static void appendReferral(String filename, Referral referral) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true))) {
-            bw.write(referral.toCSV() + "\n");
-        } catch (IOException e) {
-            System.err.println("Error appending referral: " + e.getMessage());
+        GroupCommitWriter.getInstance().awaitCommit(submitReferral(filename, referral));
+    }
+
+    /**
+     * Appends many referrals to CSV file with a single group-commit write
+     */
+    public static void appendReferrals(String filename, List<Referral> referrals) {
+        GroupCommitWriter.getInstance().awaitCommit(submitReferrals(filename, referrals));
+    }
+
+    /**
+     * Queues a referral for appending to CSV file without waiting for it
+     * to be written; see GroupCommitWriter.awaitCommit
+     */
+    public static GroupCommitWriter.Commit submitReferral(String filename, Referral referral) {
+        return GroupCommitWriter.getInstance().submit(filename, formatReferral(referral) + "\n");
+    }
+
+    /**
+     * Queues many referrals as a single append to CSV file without waiting
+     */
+    public static GroupCommitWriter.Commit submitReferrals(String filename, List<Referral> referrals) {
+        return submitAll(filename, referrals, CSVHandler::formatReferral);
+    }
+
+    // Returns null if there is nothing to append
+    private static <T> GroupCommitWriter.Commit submitAll(String filename, List<T> entities,
+                                                          Function<T, String> format) {
+        if (entities.isEmpty()) {
+            return null;
         }
+        StringBuilder lines = new StringBuilder();
+        for (T entityRecord : entities) {
+            lines.append(format.apply(entityRecord)).append('\n');
+        }
+        return GroupCommitWriter.getInstance().submit(filename, lines.toString());
     }
 
     /**
      * Writes appointments to CSV file
      */
     public static void writeAppointments(String filename, List<Appointment> appointments) {
+        GroupCommitWriter.getInstance().release(filename);
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
             // Write header
-            bw.write("AppointmentId,PatientId,ClinicianId,AppointmentDateTime,AppointmentType,Status,Notes\n");
-            
+            bw.write(APPOINTMENTS_HEADER + "\n");
+
             // Write data
             for (Appointment appointment : appointments) {
-                bw.write(String.format("%s,%s,%s,%s,%s,%s,%s\n",
-                    appointment.getAppointmentId(),
-                    appointment.getPatientId(),
-                    appointment.getClinicianId(),
-                    appointment.getAppointmentDateTime().format(DATETIME_FORMATTER),
-                    appointment.getAppointmentType(),
-                    appointment.getStatus(),
-                    appointment.getNotes()));
+                bw.write(formatAppointment(appointment));
+                bw.write('\n');
             }
         } catch (IOException e) {
             System.err.println("Error writing appointments file: " + e.getMessage());
         }
+        if (columnarStore) {
+            writeColumnar(filename, appointments, "appointments", ColumnarStore::writeAppointments);
+        }
+    }
+
+    /**
+     * Appends many appointments to CSV file with a single group-commit write
+     */
+    public static void appendAppointments(String filename, List<Appointment> appointments) {
+        GroupCommitWriter.getInstance().awaitCommit(submitAppointments(filename, appointments));
+    }
+
+    /**
+     * Queues many appointments as a single append to CSV file without waiting
+     */
+    public static GroupCommitWriter.Commit submitAppointments(String filename, List<Appointment> appointments) {
+        return submitAll(filename, appointments, CSVHandler::formatAppointment);
     }
 }
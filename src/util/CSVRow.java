@@ -0,0 +1,46 @@
+package util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read access to the fields of the current CSV record.
+ * Implementations locate fields by offset and only build a String
+ * when a field is read as one.
+ */
+public interface CSVRow {
+    /**
+     * Returns the number of fields in the current record
+     */
+    int size();
+
+    /**
+     * Returns a field with surrounding whitespace and quotes removed
+     */
+    String get(int index);
+
+    /**
+     * Returns a field like get(), as the shared ValueDictionary instance of
+     * its value; meant for fields with few distinct values
+     */
+    default String getShared(int index) {
+        return ValueDictionary.getInstance().intern(get(index));
+    }
+
+    /**
+     * Parses a yyyy-MM-dd field
+     */
+    LocalDate getDate(int index);
+
+    /**
+     * Parses a yyyy-MM-dd field into the shared ValueDictionary instance of that date
+     */
+    default LocalDate getSharedDate(int index) {
+        return ValueDictionary.getInstance().intern(getDate(index));
+    }
+
+    /**
+     * Parses a yyyy-MM-dd HH:mm field
+     */
+    LocalDateTime getDateTime(int index);
+}
@@ -0,0 +1,145 @@
+package util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Single-pass RFC 4180 tokenizer for one CSV record.
+ * Field boundaries are recorded as offsets into the record, so a String is
+ * only created when a field is read, and date fields in the
+ * yyyy-MM-dd / yyyy-MM-dd HH:mm layouts are parsed straight from the record.
+ * An instance is reused for every record of a file and is not thread-safe.
+ */
+public class CSVTokenizer implements CSVRow {
+    private String record;
+    private final DateFields.Chars chars = index -> record.charAt(index);
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private int count;
+
+    /**
+     * Splits a record into fields.
+     * Returns the number of fields, or -1 if a quoted field is still open
+     * at the end of the record (the record continues on the next line).
+     */
+    public int tokenize(String record) {
+        this.record = record;
+        this.count = 0;
+        int length = record.length();
+        int pos = 0;
+        while (true) {
+            if (count == starts.length) {
+                grow();
+            }
+            int start = pos;
+            while (start < length && isBlank(record.charAt(start))) {
+                start++;
+            }
+            int next;
+            if (start < length && record.charAt(start) == '"') {
+                boolean hasEscapes = false;
+                int close = start + 1;
+                while (true) {
+                    if (close >= length) {
+                        return -1;
+                    }
+                    if (record.charAt(close) == '"') {
+                        if (close + 1 < length && record.charAt(close + 1) == '"') {
+                            hasEscapes = true;
+                            close += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    close++;
+                }
+                starts[count] = start + 1;
+                ends[count] = close;
+                escaped[count] = hasEscapes;
+                next = record.indexOf(',', close + 1);
+            } else {
+                next = record.indexOf(',', start);
+                int end = next < 0 ? length : next;
+                while (end > start && isBlank(record.charAt(end - 1))) {
+                    end--;
+                }
+                starts[count] = start;
+                ends[count] = end;
+                escaped[count] = false;
+            }
+            count++;
+            if (next < 0) {
+                return count;
+            }
+            pos = next + 1;
+        }
+    }
+
+    /**
+     * Returns the number of fields in the current record
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns a field with surrounding whitespace and quotes removed
+     */
+    @Override
+    public String get(int index) {
+        String value = record.substring(starts[index], ends[index]);
+        return escaped[index] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Parses a yyyy-MM-dd field without going through a formatter
+     */
+    @Override
+    public LocalDate getDate(int index) {
+        LocalDate date = DateFields.date(chars, starts[index], ends[index]);
+        return date != null ? date : LocalDate.parse(get(index), DateFields.DATE_FORMATTER);
+    }
+
+    /**
+     * Parses a yyyy-MM-dd HH:mm field without going through a formatter
+     */
+    @Override
+    public LocalDateTime getDateTime(int index) {
+        LocalDateTime dateTime = DateFields.dateTime(chars, starts[index], ends[index]);
+        return dateTime != null ? dateTime : LocalDateTime.parse(get(index), DateFields.DATETIME_FORMATTER);
+    }
+
+    /**
+     * Quotes a value for output if it contains a delimiter, quote, line break
+     * or surrounding whitespace; null is written as an empty field
+     */
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean needsQuotes = !value.isEmpty()
+                && (isBlank(value.charAt(0)) || isBlank(value.charAt(value.length() - 1)));
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static boolean isBlank(char c) {
+        return c <= ' ';
+    }
+
+    private void grow() {
+        int capacity = starts.length * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        escaped = Arrays.copyOf(escaped, capacity);
+    }
+}
@@ -0,0 +1,194 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads CSV files as raw bytes through a FileChannel, without decoding the
+ * whole file into Strings first. Files are read a window at a time into
+ * heap buffers rather than memory-mapped: a mapping stays alive until it is
+ * garbage collected, and while it does Windows refuses to rewrite or
+ * rename over the file, which every snapshot save, import and compaction
+ * does to the files read here.
+ *
+ * Each window is cut after its last line break outside quoted fields and
+ * parsed in place; the next window is read from that cut, so only a
+ * record straddling two windows is read twice. In parallel mode a window
+ * is also cut into chunks at line breaks, which are parsed on the common
+ * fork-join pool while the next window is read, then merged in file order.
+ */
+class ChannelCSVReader {
+    /** Files smaller than this are cheaper to parse on a single thread */
+    static final long MIN_PARALLEL_BYTES = 4L * 1024 * 1024;
+    private static final long MIN_CHUNK_BYTES = 1024 * 1024;
+    /** Bounds the heap buffer each window is read into, unless one record is larger */
+    private static final int MAX_WINDOW_BYTES = 64 * 1024 * 1024;
+    private static final int HEADER_PROBE_BYTES = 64 * 1024;
+
+    private ChannelCSVReader() {
+    }
+
+    static <T> List<T> read(String filename, int minFields, String entityName,
+                            CSVHandler.RowMapper<T> mapper, boolean parallel) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = headerEnd(channel, size);
+            boolean split = parallel && size >= MIN_PARALLEL_BYTES;
+            long chunkBytes = split
+                    ? Math.max(MIN_CHUNK_BYTES, (size - start) / (ForkJoinPool.getCommonPoolParallelism() * 4))
+                    : Long.MAX_VALUE;
+
+            List<T> entities = new ArrayList<>();
+            List<ForkJoinTask<List<T>>> previous = new ArrayList<>();
+            int windowBytes = MAX_WINDOW_BYTES;
+            while (start < size) {
+                int length = (int) Math.min(windowBytes, size - start);
+                ByteBuffer window = region(channel, start, length);
+                // A short read means the file was truncated while being read
+                boolean endOfFile = start + length == size || window.limit() < length;
+                int[] cuts = cuts(window, endOfFile, chunkBytes);
+                if (cuts.length == 0 && !endOfFile) {
+                    // A single record fills the window; read it whole
+                    windowBytes = (int) Math.min(Integer.MAX_VALUE - 8, 2L * windowBytes);
+                    continue;
+                }
+                windowBytes = MAX_WINDOW_BYTES;
+                int end = cuts.length == 0 ? 0 : cuts[cuts.length - 1];
+                start = endOfFile ? size : start + end;
+
+                if (!split) {
+                    parse(slice(window, 0, end), minFields, entityName, mapper, entities);
+                    continue;
+                }
+                // Parsing of the last window overlapped the read of this one;
+                // at most two windows are held at a time
+                collect(previous, entities);
+                int from = 0;
+                for (int cut : cuts) {
+                    ByteBuffer chunk = slice(window, from, cut);
+                    previous.add(ForkJoinPool.commonPool().submit(() -> {
+                        List<T> part = new ArrayList<>();
+                        parse(chunk, minFields, entityName, mapper, part);
+                        return part;
+                    }));
+                    from = cut;
+                }
+            }
+            collect(previous, entities);
+            return entities;
+        }
+    }
+
+    private static <T> void collect(List<ForkJoinTask<List<T>>> tasks, List<T> entities) {
+        for (ForkJoinTask<List<T>> task : tasks) {
+            entities.addAll(task.join());
+        }
+        tasks.clear();
+    }
+
+    private static <T> void parse(ByteBuffer region, int minFields, String entityName,
+                                  CSVHandler.RowMapper<T> mapper, List<T> entities) {
+        ByteCSVRow row = new ByteCSVRow(region);
+        while (row.next()) {
+            if (row.size() >= minFields) {
+                try {
+                    entities.add(mapper.map(row));
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping malformed " + entityName + " record: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the offset of the first data record: past a UTF-8 BOM, if any,
+     * and the header line
+     */
+    private static long headerEnd(FileChannel channel, long size) throws IOException {
+        ByteBuffer probe = region(channel, 0, (int) Math.min(size, HEADER_PROBE_BYTES));
+        int pos = 0;
+        if (probe.limit() >= 3 && (probe.get(0) & 0xFF) == 0xEF
+                && (probe.get(1) & 0xFF) == 0xBB && (probe.get(2) & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+        boolean inQuotes = false;
+        for (; pos < probe.limit(); pos++) {
+            byte b = probe.get(pos);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                return pos + 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the end offsets of the window's chunks, each cut just after a
+     * line break outside quoted fields and at least chunkBytes long but for
+     * the last. The last cut ends the window's whole records: the window's
+     * end if it is the end of the file, otherwise its last line break, or
+     * no cuts at all if it has none. The window starts at a record boundary,
+     * so it starts outside quotes; the last window of an unsplit read needs
+     * no scan.
+     */
+    private static int[] cuts(ByteBuffer window, boolean endOfFile, long chunkBytes) {
+        int limit = window.limit();
+        if (endOfFile && chunkBytes >= limit) {
+            return new int[] {limit};
+        }
+        List<Integer> cuts = new ArrayList<>();
+        int chunkStart = 0;
+        int lastBreak = 0;
+        boolean inQuotes = false;
+        for (int i = 0; i < limit; i++) {
+            byte b = window.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                lastBreak = i + 1;
+                if (lastBreak - chunkStart >= chunkBytes && lastBreak < limit) {
+                    cuts.add(lastBreak);
+                    chunkStart = lastBreak;
+                }
+            }
+        }
+        int end = endOfFile ? limit : lastBreak;
+        if (end > chunkStart) {
+            cuts.add(end);
+        }
+        int[] result = new int[cuts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cuts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a view of bytes from..to of the buffer, indexed from zero
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(to);
+        view.position(from);
+        return view.slice();
+    }
+
+    private static ByteBuffer region(FileChannel channel, long start, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,491 @@
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import model.Appointment;
+import model.Prescription;
+import model.Referral;
+
+/**
+ * Binary columnar copy of an appointments, prescriptions or referrals CSV
+ * file, kept next to it as "&lt;file&gt;.col" so a reload skips text parsing.
+ *
+ * A file is a header (magic, version, entity name, row count, column count
+ * and the length and modification time of the CSV it was built from)
+ * followed by each column in turn. Dates are stored as epoch days and
+ * date-times as epoch minutes; string columns with few distinct values,
+ * such as status, type, urgency and drug name, are dictionary-encoded with
+ * 1, 2 or 4 byte codes, and the rest are stored as length-prefixed UTF-8.
+ *
+ * The CSV stays the interchange format and the source of truth: a columnar
+ * file is only read while the CSV still has the length and modification
+ * time recorded in its header.
+ */
+public class ColumnarStore {
+    private static final String COLUMNAR_SUFFIX = ".col";
+    private static final int MAGIC = 0x484D5343; // "HMSC"
+    private static final short VERSION = 1;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Column encodings
+    private static final byte PLAIN = 0;
+    private static final byte DICTIONARY = 1;
+    private static final byte EPOCH_DAY = 2;
+    private static final byte EPOCH_MINUTE = 3;
+
+    /** Most distinct values a dictionary may hold, as a fraction of the row count */
+    private static final int MAX_DICTIONARY_SHARE = 4;
+    /** Largest column dictionary whose values are added to the ValueDictionary */
+    private static final int SHARED_DICTIONARY_SIZE = 4096;
+
+    private ColumnarStore() {
+    }
+
+    /**
+     * Returns the columnar path for a CSV file
+     */
+    public static String columnarPath(String csvFilename) {
+        return csvFilename + COLUMNAR_SUFFIX;
+    }
+
+    /**
+     * Returns true if the CSV file has a columnar copy built from its current contents
+     */
+    public static boolean isCurrent(String csvFilename) {
+        File columnar = new File(columnarPath(csvFilename));
+        if (!columnar.isFile()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(columnar)))) {
+            Header header = Header.read(in);
+            File csv = new File(csvFilename);
+            return header.sourceLength == csv.length() && header.sourceModified == csv.lastModified();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ==================== Appointments ====================
+
+    public static void writeAppointments(String csvFilename, List<Appointment> appointments) throws IOException {
+        try (ColumnWriter out = new ColumnWriter(csvFilename, "appointments", appointments.size(), 7)) {
+            out.strings("AppointmentId", appointments, Appointment::getAppointmentId);
+            out.strings("PatientId", appointments, Appointment::getPatientId);
+            out.strings("ClinicianId", appointments, Appointment::getClinicianId);
+            out.dates(EPOCH_MINUTE, "AppointmentDateTime", appointments,
+                    apt -> epochMinute(apt.getAppointmentDateTime()));
+            out.strings("AppointmentType", appointments, Appointment::getAppointmentType);
+            out.strings("Status", appointments, Appointment::getStatus);
+            out.strings("Notes", appointments, Appointment::getNotes);
+        }
+    }
+
+    public static List<Appointment> readAppointments(String csvFilename) throws IOException {
+        try (ColumnReader in = new ColumnReader(csvFilename, "appointments", 7)) {
+            int rows = in.rows;
+            String[] ids = in.strings();
+            String[] patientIds = in.strings();
+            String[] clinicianIds = in.strings();
+            int[] dateTimes = in.dates(EPOCH_MINUTE);
+            String[] types = in.strings();
+            String[] statuses = in.strings();
+            String[] notes = in.strings();
+            List<Appointment> appointments = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                appointments.add(new Appointment(ids[i], patientIds[i], clinicianIds[i],
+                        toDateTime(dateTimes[i]), types[i], statuses[i], notes[i]));
+            }
+            return appointments;
+        }
+    }
+
+    // ==================== Prescriptions ====================
+
+    public static void writePrescriptions(String csvFilename, List<Prescription> prescriptions) throws IOException {
+        try (ColumnWriter out = new ColumnWriter(csvFilename, "prescriptions", prescriptions.size(), 9)) {
+            out.strings("PrescriptionId", prescriptions, Prescription::getPrescriptionId);
+            out.strings("PatientId", prescriptions, Prescription::getPatientId);
+            out.strings("ClinicianId", prescriptions, Prescription::getClinicianId);
+            out.dates(EPOCH_DAY, "PrescriptionDate", prescriptions, pres -> epochDay(pres.getPrescriptionDate()));
+            out.strings("Condition", prescriptions, Prescription::getCondition);
+            out.strings("DrugName", prescriptions, Prescription::getDrugName);
+            out.strings("Dosage", prescriptions, Prescription::getDosage);
+            out.strings("Duration", prescriptions, Prescription::getDuration);
+            out.strings("Instructions", prescriptions, Prescription::getInstructions);
+        }
+    }
+
+    public static List<Prescription> readPrescriptions(String csvFilename) throws IOException {
+        try (ColumnReader in = new ColumnReader(csvFilename, "prescriptions", 9)) {
+            int rows = in.rows;
+            String[] ids = in.strings();
+            String[] patientIds = in.strings();
+            String[] clinicianIds = in.strings();
+            int[] dates = in.dates(EPOCH_DAY);
+            String[] conditions = in.strings();
+            String[] drugs = in.strings();
+            String[] dosages = in.strings();
+            String[] durations = in.strings();
+            String[] instructions = in.strings();
+            List<Prescription> prescriptions = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                prescriptions.add(new Prescription(ids[i], patientIds[i], clinicianIds[i], toDate(dates[i]),
+                        conditions[i], drugs[i], dosages[i], durations[i], instructions[i]));
+            }
+            return prescriptions;
+        }
+    }
+
+    // ==================== Referrals ====================
+
+    public static void writeReferrals(String csvFilename, List<Referral> referrals) throws IOException {
+        try (ColumnWriter out = new ColumnWriter(csvFilename, "referrals", referrals.size(), 9)) {
+            out.strings("ReferralId", referrals, Referral::getReferralId);
+            out.strings("PatientId", referrals, Referral::getPatientId);
+            out.strings("GpId", referrals, Referral::getGpId);
+            out.strings("SpecialistId", referrals, Referral::getSpecialistId);
+            out.dates(EPOCH_DAY, "ReferralDate", referrals, ref -> epochDay(ref.getReferralDate()));
+            out.strings("Reason", referrals, Referral::getReason);
+            out.strings("Urgency", referrals, Referral::getUrgency);
+            out.strings("Status", referrals, Referral::getStatus);
+            out.strings("Notes", referrals, Referral::getNotes);
+        }
+    }
+
+    public static List<Referral> readReferrals(String csvFilename) throws IOException {
+        try (ColumnReader in = new ColumnReader(csvFilename, "referrals", 9)) {
+            int rows = in.rows;
+            String[] ids = in.strings();
+            String[] patientIds = in.strings();
+            String[] gpIds = in.strings();
+            String[] specialistIds = in.strings();
+            int[] dates = in.dates(EPOCH_DAY);
+            String[] reasons = in.strings();
+            String[] urgencies = in.strings();
+            String[] statuses = in.strings();
+            String[] notes = in.strings();
+            List<Referral> referrals = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                referrals.add(new Referral(ids[i], patientIds[i], gpIds[i], specialistIds[i], toDate(dates[i]),
+                        reasons[i], urgencies[i], statuses[i], notes[i]));
+            }
+            return referrals;
+        }
+    }
+
+    // ==================== Date conversions ====================
+
+    private static int epochDay(LocalDate date) {
+        return date == null ? NULL_DATE : Math.toIntExact(date.toEpochDay());
+    }
+
+    private static LocalDate toDate(int epochDay) {
+        return epochDay == NULL_DATE ? null : ValueDictionary.getInstance().intern(LocalDate.ofEpochDay(epochDay));
+    }
+
+    private static int epochMinute(LocalDateTime dateTime) {
+        return dateTime == null ? NULL_DATE : Math.toIntExact(dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    private static LocalDateTime toDateTime(int epochMinute) {
+        return epochMinute == NULL_DATE ? null : LocalDateTime.ofEpochSecond(epochMinute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    // ==================== File layout ====================
+
+    /**
+     * Everything before the first column
+     */
+    private static class Header {
+        String entity;
+        int rows;
+        int columns;
+        long sourceLength;
+        long sourceModified;
+
+        static Header read(DataInputStream in) throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a columnar file");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported columnar file version " + version);
+            }
+            Header header = new Header();
+            header.entity = in.readUTF();
+            header.rows = in.readInt();
+            header.columns = in.readInt();
+            header.sourceLength = in.readLong();
+            header.sourceModified = in.readLong();
+            return header;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeUTF(entity);
+            out.writeInt(rows);
+            out.writeInt(columns);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceModified);
+        }
+    }
+
+    /**
+     * Writes a columnar file to a temporary file and moves it into place on
+     * close, stamped with the CSV file's current length and modification time
+     */
+    private static class ColumnWriter implements AutoCloseable {
+        private final File target;
+        private final File temp;
+        private final DataOutputStream out;
+        private final int rows;
+        private final int columns;
+        private int written;
+
+        ColumnWriter(String csvFilename, String entity, int rows, int columns) throws IOException {
+            this.target = new File(columnarPath(csvFilename));
+            this.temp = new File(target.getPath() + ".tmp");
+            this.rows = rows;
+            this.columns = columns;
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE));
+            File csv = new File(csvFilename);
+            Header header = new Header();
+            header.entity = entity;
+            header.rows = rows;
+            header.columns = columns;
+            header.sourceLength = csv.length();
+            header.sourceModified = csv.lastModified();
+            header.write(out);
+        }
+
+        /**
+         * Writes a string column, dictionary-encoded when its values repeat enough
+         */
+        <T> void strings(String name, List<T> entities, Function<T, String> getter) throws IOException {
+            Map<String, Integer> codes = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            int maxDictionary = Math.max(16, rows / MAX_DICTIONARY_SHARE);
+            for (T entity : entities) {
+                String value = getter.apply(entity);
+                if (!codes.containsKey(value)) {
+                    if (dictionary.size() >= maxDictionary) {
+                        dictionary = null;
+                        break;
+                    }
+                    codes.put(value, dictionary.size());
+                    dictionary.add(value);
+                }
+            }
+
+            out.writeUTF(name);
+            if (dictionary == null) {
+                out.writeByte(PLAIN);
+                for (T entity : entities) {
+                    writeString(getter.apply(entity));
+                }
+            } else {
+                out.writeByte(DICTIONARY);
+                out.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    writeString(value);
+                }
+                int width = codeWidth(dictionary.size());
+                out.writeByte(width);
+                for (T entity : entities) {
+                    int code = codes.get(getter.apply(entity));
+                    if (width == 1) {
+                        out.writeByte(code);
+                    } else if (width == 2) {
+                        out.writeShort(code);
+                    } else {
+                        out.writeInt(code);
+                    }
+                }
+            }
+            written++;
+        }
+
+        /**
+         * Writes an epoch-day or epoch-minute column
+         */
+        <T> void dates(byte encoding, String name, List<T> entities, ToIntFunction<T> getter) throws IOException {
+            out.writeUTF(name);
+            out.writeByte(encoding);
+            for (T entity : entities) {
+                out.writeInt(getter.applyAsInt(entity));
+            }
+            written++;
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static int codeWidth(int dictionarySize) {
+            if (dictionarySize <= 0xFF) {
+                return 1;
+            }
+            return dictionarySize <= 0xFFFF ? 2 : 4;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (written != columns) {
+                temp.delete();
+                throw new IOException("wrote " + written + " of " + columns + " columns");
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Reads the columns of a columnar file in order
+     */
+    private static class ColumnReader implements AutoCloseable {
+        private final DataInputStream in;
+        private final int rows;
+        private byte[] buffer = new byte[256];
+
+        ColumnReader(String csvFilename, String entity, int columns) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(columnarPath(csvFilename)), BUFFER_SIZE));
+            try {
+                Header header = Header.read(in);
+                if (!entity.equals(header.entity) || header.columns != columns) {
+                    throw new IOException("expected " + columns + " " + entity + " columns, found "
+                            + header.columns + " " + header.entity + " columns");
+                }
+                this.rows = header.rows;
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        String[] strings() throws IOException {
+            in.readUTF();
+            byte encoding = in.readByte();
+            String[] values = new String[rows];
+            try {
+                if (encoding == PLAIN) {
+                    for (int i = 0; i < rows; i++) {
+                        values[i] = readString();
+                    }
+                } else if (encoding == DICTIONARY) {
+                    String[] dictionary = new String[in.readInt()];
+                    // Small dictionaries (statuses, types, drugs) are shared app-wide; large ones
+                    // such as patient IDs stay per column so they don't fill the shared dictionary
+                    boolean share = dictionary.length <= SHARED_DICTIONARY_SIZE;
+                    for (int i = 0; i < dictionary.length; i++) {
+                        String value = readString();
+                        dictionary[i] = share ? ValueDictionary.getInstance().intern(value) : value;
+                    }
+                    // Rows share the dictionary's String instances
+                    int width = in.readByte();
+                    for (int i = 0; i < rows; i++) {
+                        int code = width == 1 ? in.readUnsignedByte() : width == 2 ? in.readUnsignedShort() : in.readInt();
+                        values[i] = dictionary[code];
+                    }
+                } else {
+                    throw new IOException("expected a string column, found encoding " + encoding);
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IOException("corrupt dictionary code", e);
+            }
+            return values;
+        }
+
+        int[] dates(byte expected) throws IOException {
+            in.readUTF();
+            byte encoding = in.readByte();
+            if (encoding != expected) {
+                throw new IOException("expected date encoding " + expected + ", found " + encoding);
+            }
+            int[] values = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                values[i] = in.readInt();
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, length);
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // ==================== Import and export ====================
+
+    /**
+     * Builds columnar files from the CSV files in a directory, or writes the
+     * CSV files back out from them:
+     * ColumnarStore import|export &lt;directory&gt;
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !("import".equals(args[0]) || "export".equals(args[0]))) {
+            System.err.println("Usage: ColumnarStore import|export <directory>");
+            System.exit(1);
+        }
+        String dir = args[1].endsWith("/") ? args[1] : args[1] + "/";
+        String appointmentsFile = dir + "appointments.csv";
+        String prescriptionsFile = dir + "prescriptions.csv";
+        String referralsFile = dir + "referrals.csv";
+        if ("import".equals(args[0])) {
+            writeAppointments(appointmentsFile, CSVHandler.readAppointments(appointmentsFile, true));
+            writePrescriptions(prescriptionsFile, CSVHandler.readPrescriptions(prescriptionsFile, true));
+            writeReferrals(referralsFile, CSVHandler.readReferrals(referralsFile, true));
+        } else {
+            List<Appointment> appointments = readAppointments(appointmentsFile);
+            List<Prescription> prescriptions = readPrescriptions(prescriptionsFile);
+            List<Referral> referrals = readReferrals(referralsFile);
+            CSVHandler.writeAppointments(appointmentsFile, appointments);
+            CSVHandler.writePrescriptions(prescriptionsFile, prescriptions);
+            CSVHandler.writeReferrals(referralsFile, referrals);
+            // Restamp so the columnar files stay current for the rewritten CSV files
+            writeAppointments(appointmentsFile, appointments);
+            writePrescriptions(prescriptionsFile, prescriptions);
+            writeReferrals(referralsFile, referrals);
+        }
+        System.out.println(args[0] + "ed columnar files in " + dir);
+    }
+}
@@ -0,0 +1,430 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import model.Appointment;
+import model.Clinician;
+import model.Patient;
+import model.Prescription;
+import model.Referral;
+
+/**
+ * Deterministic generator for large data sets in the data/ CSV schema.
+ * The same seed and settings always produce the same files.
+ *
+ * Every file is streamed row by row, so memory use does not grow with the
+ * number of rows. Referential integrity holds without keeping any IDs in
+ * memory: clinician types follow a fixed pattern by index (two GPs, two
+ * specialists, one nurse in every five), so a GP or specialist can be picked
+ * by arithmetic. Appointments, prescriptions and referrals choose patients
+ * and clinicians from a Zipf distribution, so a few are very busy and most
+ * are not; notes and instructions often contain commas and quotes.
+ *
+ * Usage: java -cp bin util.DatasetGenerator &lt;directory&gt; &lt;patients&gt; [seed]
+ */
+public class DatasetGenerator {
+    private static final String[] FIRST_NAMES = {
+        "Oliver", "Amelia", "George", "Isla", "Harry", "Ava", "Noah", "Mia", "Jack", "Ivy",
+        "Leo", "Grace", "Arthur", "Freya", "Muhammad", "Lily", "Oscar", "Florence", "Charlie", "Sophia"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Johnson", "Davies", "Patel", "Wright",
+        "Robinson", "Thompson", "Evans", "Walker", "White", "Roberts", "Green", "Hall", "Khan", "O'Brien"
+    };
+    private static final String[] TOWNS = {
+        "London", "Manchester", "Birmingham", "Leeds", "Bristol", "Sheffield", "Liverpool", "Nottingham"
+    };
+    private static final String[] STREETS = {"High Street", "Station Road", "Church Lane", "Park Avenue", "Mill Road"};
+    private static final String[] SPECIALTIES = {
+        "Cardiology", "Dermatology", "Orthopaedics", "Neurology", "Oncology", "Paediatrics", "Psychiatry"
+    };
+    private static final String[] APPOINTMENT_TYPES = {"CONSULTATION", "FOLLOW_UP", "CHECKUP", "EMERGENCY"};
+    private static final String[] APPOINTMENT_STATUSES = {"SCHEDULED", "SCHEDULED", "SCHEDULED", "COMPLETED", "CANCELLED"};
+    private static final String[] APPOINTMENT_NOTES = {
+        "",
+        "Annual checkup",
+        "Follow-up on blood pressure, bring readings",
+        "Review results, discuss options",
+        "Patient reports \"intermittent\" pain, left knee",
+        "Medication review: dosage, side effects, adherence"
+    };
+    private static final String[][] DRUGS = {
+        {"Hypertension", "Amlodipine", "5mg"},
+        {"Type 2 Diabetes", "Metformin", "500mg"},
+        {"Asthma", "Salbutamol", "100mcg"},
+        {"High Cholesterol", "Atorvastatin", "20mg"},
+        {"Depression", "Sertraline", "50mg"},
+        {"Hypothyroidism", "Levothyroxine", "75mcg"}
+    };
+    private static final String[] INSTRUCTIONS = {
+        "Take once daily",
+        "Take twice daily, with food",
+        "Take in the morning, before breakfast",
+        "Use as needed, up to 4 times a day"
+    };
+    private static final String[] REFERRAL_REASONS = {
+        "Suspected cardiac arrhythmia",
+        "Persistent rash, not responding to treatment",
+        "Chronic knee pain, reduced mobility",
+        "Recurring headaches, visual disturbance"
+    };
+    private static final String[] URGENCIES = {"ROUTINE", "ROUTINE", "ROUTINE", "URGENT", "EMERGENCY"};
+    private static final String[] REFERRAL_STATUSES = {"PENDING", "PENDING", "ACCEPTED", "COMPLETED"};
+
+    private static final int MIN_CLINICIANS = 5;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final long seed;
+    private long patients = 1000;
+    private int patientsPerClinician = 100;
+    private double appointmentsPerPatient = 3;
+    private double prescriptionsPerPatient = 2;
+    private double referralsPerPatient = 0.5;
+    private double skew = 0.8;
+    private LocalDate firstAppointmentDay = LocalDate.of(2025, 1, 6);
+    private int appointmentDays = 365;
+
+    public DatasetGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setPatients(long patients) {
+        this.patients = patients;
+    }
+
+    /**
+     * Sets how many patients there are for each clinician
+     */
+    public void setPatientsPerClinician(int patientsPerClinician) {
+        this.patientsPerClinician = patientsPerClinician;
+    }
+
+    public void setAppointmentsPerPatient(double appointmentsPerPatient) {
+        this.appointmentsPerPatient = appointmentsPerPatient;
+    }
+
+    public void setPrescriptionsPerPatient(double prescriptionsPerPatient) {
+        this.prescriptionsPerPatient = prescriptionsPerPatient;
+    }
+
+    public void setReferralsPerPatient(double referralsPerPatient) {
+        this.referralsPerPatient = referralsPerPatient;
+    }
+
+    /**
+     * Sets the Zipf exponent used to pick patients and clinicians; 0 is uniform,
+     * larger values concentrate activity on fewer of them
+     */
+    public void setSkew(double skew) {
+        this.skew = skew;
+    }
+
+    /**
+     * Sets the weekday range appointments are spread over
+     */
+    public void setAppointmentPeriod(LocalDate firstDay, int days) {
+        this.firstAppointmentDay = firstDay;
+        this.appointmentDays = days;
+    }
+
+    // ==================== IDs ====================
+
+    public long getClinicianCount() {
+        return Math.max(MIN_CLINICIANS, (patients + patientsPerClinician - 1) / patientsPerClinician);
+    }
+
+    /**
+     * Number of GPs: clinicians whose index leaves 0 or 1 modulo 5
+     */
+    public long getGpCount() {
+        long clinicians = getClinicianCount();
+        return clinicians / 5 * 2 + Math.min(2, clinicians % 5);
+    }
+
+    /**
+     * Number of specialists: clinicians whose index leaves 2 or 3 modulo 5
+     */
+    public long getSpecialistCount() {
+        long clinicians = getClinicianCount();
+        return clinicians / 5 * 2 + Math.max(0, Math.min(2, clinicians % 5 - 2));
+    }
+
+    public static String patientId(long index) {
+        return "P" + (1000000 + index);
+    }
+
+    public static String clinicianId(long index) {
+        return "C" + (1000 + index);
+    }
+
+    /**
+     * Returns the ID of the GP with the given index among GPs
+     */
+    public static String gpId(long gpIndex) {
+        return clinicianId(gpIndex / 2 * 5 + gpIndex % 2);
+    }
+
+    /**
+     * Returns the ID of the specialist with the given index among specialists
+     */
+    public static String specialistId(long specialistIndex) {
+        return clinicianId(specialistIndex / 2 * 5 + 2 + specialistIndex % 2);
+    }
+
+    // ==================== Generation ====================
+
+    /**
+     * Writes the five CSV files into the given directory, creating it if needed
+     */
+    public void generate(String directory) throws IOException {
+        File dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        writeClinicians(new File(dir, "clinicians.csv"));
+        writePatients(new File(dir, "patients.csv"));
+        writeAppointments(new File(dir, "appointments.csv"));
+        writePrescriptions(new File(dir, "prescriptions.csv"));
+        writeReferrals(new File(dir, "referrals.csv"));
+    }
+
+    private void writeClinicians(File file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long count = getClinicianCount();
+        try (BufferedWriter writer = open(file, CSVHandler.CLINICIANS_HEADER)) {
+            for (long i = 0; i < count; i++) {
+                String type;
+                String specialty;
+                switch ((int) (i % 5)) {
+                    case 0:
+                    case 1:
+                        type = "GP";
+                        specialty = "General Practice";
+                        break;
+                    case 2:
+                    case 3:
+                        type = "SPECIALIST";
+                        specialty = pick(random, SPECIALTIES);
+                        break;
+                    default:
+                        type = "NURSE";
+                        specialty = "Practice Nursing";
+                }
+                String firstName = pick(random, FIRST_NAMES);
+                String lastName = pick(random, LAST_NAMES);
+                Clinician clinician = new Clinician(clinicianId(i), firstName, lastName,
+                        email(firstName, lastName, i, "nhs.uk"), phone(random), specialty,
+                        "GMC" + (1000000 + i), type);
+                writer.write(CSVHandler.formatClinician(clinician));
+                writer.write('\n');
+            }
+        }
+        System.out.println("Wrote " + count + " clinicians to " + file);
+    }
+
+    private void writePatients(File file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        long gps = getGpCount();
+        LocalDate oldest = LocalDate.of(1930, 1, 1);
+        try (BufferedWriter writer = open(file, CSVHandler.PATIENTS_HEADER)) {
+            for (long i = 0; i < patients; i++) {
+                String firstName = pick(random, FIRST_NAMES);
+                String lastName = pick(random, LAST_NAMES);
+                String address = (1 + random.nextInt(250)) + " " + pick(random, STREETS) + ", " + pick(random, TOWNS);
+                Patient patient = new Patient(patientId(i), firstName, lastName,
+                        email(firstName, lastName, i, "email.com"), phone(random),
+                        oldest.plusDays(random.nextInt(33000)), address,
+                        "NHS" + (1000000000L + i), gpId(random.nextLong(gps)));
+                writer.write(CSVHandler.formatPatient(patient));
+                writer.write('\n');
+            }
+        }
+        System.out.println("Wrote " + patients + " patients to " + file);
+    }
+
+    private void writeAppointments(File file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed + 2);
+        long count = Math.round(patients * appointmentsPerPatient);
+        ZipfSampler patientSampler = new ZipfSampler(patients, skew);
+        ZipfSampler clinicianSampler = new ZipfSampler(getClinicianCount(), skew);
+        try (BufferedWriter writer = open(file, CSVHandler.APPOINTMENTS_HEADER)) {
+            for (long i = 0; i < count; i++) {
+                Appointment appointment = new Appointment("APT" + (1000000 + i),
+                        patientId(patientSampler.sample(random)), clinicianId(clinicianSampler.sample(random)),
+                        appointmentTime(random), pick(random, APPOINTMENT_TYPES),
+                        pick(random, APPOINTMENT_STATUSES), pick(random, APPOINTMENT_NOTES));
+                writer.write(CSVHandler.formatAppointment(appointment));
+                writer.write('\n');
+            }
+        }
+        System.out.println("Wrote " + count + " appointments to " + file);
+    }
+
+    private void writePrescriptions(File file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed + 3);
+        long count = Math.round(patients * prescriptionsPerPatient);
+        ZipfSampler patientSampler = new ZipfSampler(patients, skew);
+        ZipfSampler prescriberSampler = new ZipfSampler(getGpCount(), skew);
+        try (BufferedWriter writer = open(file, CSVHandler.PRESCRIPTIONS_HEADER)) {
+            for (long i = 0; i < count; i++) {
+                String[] drug = pick(random, DRUGS);
+                Prescription prescription = new Prescription("PRC" + (1000000 + i),
+                        patientId(patientSampler.sample(random)), gpId(prescriberSampler.sample(random)),
+                        firstAppointmentDay.plusDays(random.nextInt(appointmentDays)), drug[0], drug[1], drug[2],
+                        (7 * (1 + random.nextInt(12))) + " days", pick(random, INSTRUCTIONS));
+                writer.write(CSVHandler.formatPrescription(prescription));
+                writer.write('\n');
+            }
+        }
+        System.out.println("Wrote " + count + " prescriptions to " + file);
+    }
+
+    private void writeReferrals(File file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed + 4);
+        long count = Math.round(patients * referralsPerPatient);
+        ZipfSampler patientSampler = new ZipfSampler(patients, skew);
+        ZipfSampler gpSampler = new ZipfSampler(getGpCount(), skew);
+        ZipfSampler specialistSampler = new ZipfSampler(getSpecialistCount(), skew);
+        try (BufferedWriter writer = open(file, CSVHandler.REFERRALS_HEADER)) {
+            for (long i = 0; i < count; i++) {
+                String urgency = pick(random, URGENCIES);
+                Referral referral = new Referral("REF" + (1000000 + i),
+                        patientId(patientSampler.sample(random)), gpId(gpSampler.sample(random)),
+                        specialistId(specialistSampler.sample(random)),
+                        firstAppointmentDay.plusDays(random.nextInt(appointmentDays)),
+                        pick(random, REFERRAL_REASONS), urgency, pick(random, REFERRAL_STATUSES),
+                        "EMERGENCY".equals(urgency) ? "Seen in A&E, please expedite" : "");
+                writer.write(CSVHandler.formatReferral(referral));
+                writer.write('\n');
+            }
+        }
+        System.out.println("Wrote " + count + " referrals to " + file);
+    }
+
+    /**
+     * Picks a quarter-hour slot between 08:00 and 17:45 on a weekday in the appointment period
+     */
+    private LocalDateTime appointmentTime(SplittableRandom random) {
+        LocalDate day = firstAppointmentDay.plusDays(random.nextInt(appointmentDays));
+        if (day.getDayOfWeek() == DayOfWeek.SATURDAY) {
+            day = day.minusDays(1);
+        } else if (day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            day = day.plusDays(1);
+        }
+        int slot = random.nextInt(40);
+        return day.atTime(8 + slot / 4, slot % 4 * 15);
+    }
+
+    private static BufferedWriter open(File file, String header) throws IOException {
+        BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(header);
+        writer.write('\n');
+        return writer;
+    }
+
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String email(String firstName, String lastName, long index, String domain) {
+        return (firstName + "." + lastName).toLowerCase().replace("'", "") + index + "@" + domain;
+    }
+
+    private static String phone(SplittableRandom random) {
+        return "07700" + (100000 + random.nextInt(900000));
+    }
+
+    /**
+     * Samples 0-based ranks from a Zipf distribution over n elements in constant
+     * memory, using rejection-inversion (Hoermann and Derflinger, 1996). Rank 0
+     * is the most frequent.
+     */
+    static class ZipfSampler {
+        private final long n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        ZipfSampler(long n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1.0;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+        }
+
+        long sample(SplittableRandom random) {
+            if (exponent <= 0) {
+                return random.nextLong(n);
+            }
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = (long) (x + 0.5);
+                if (k < 1) {
+                    k = 1;
+                } else if (k > n) {
+                    k = n;
+                }
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k - 1;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1.0 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1.0 - exponent);
+            if (t < -1.0) {
+                t = -1.0;
+            }
+            return Math.exp(helper1(t) * x);
+        }
+
+        /** log(1 + x) / x, accurate near 0 */
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+        }
+
+        /** (exp(x) - 1) / x, accurate near 0 */
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+        }
+    }
+
+    /**
+     * Generates a data set from the command line
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp bin util.DatasetGenerator <directory> <patients> [seed]");
+            System.exit(1);
+        }
+        DatasetGenerator generator = new DatasetGenerator(args.length > 2 ? Long.parseLong(args[2]) : 42L);
+        generator.setPatients(Long.parseLong(args[1]));
+        try {
+            generator.generate(args[0]);
+        } catch (IOException e) {
+            System.err.println("Error generating data set: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parses date fields in the yyyy-MM-dd / yyyy-MM-dd HH:mm layouts straight
+ * from a record's characters, without building a String or going through
+ * a formatter, for the CSVRow implementations. Fields in any other layout
+ * are left to the formatters.
+ */
+final class DateFields {
+    static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    /**
+     * The characters of a record by index; bytes of UTF-8 text serve as
+     * well, since dates are ASCII
+     */
+    interface Chars {
+        int charAt(int index);
+    }
+
+    private DateFields() {
+    }
+
+    /**
+     * Returns the yyyy-MM-dd date in start..end, or null if the field has another layout
+     */
+    static LocalDate date(Chars chars, int start, int end) {
+        if (end - start == 10 && chars.charAt(start + 4) == '-' && chars.charAt(start + 7) == '-') {
+            int year = digits(chars, start, 4);
+            int month = digits(chars, start + 5, 2);
+            int day = digits(chars, start + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the yyyy-MM-dd HH:mm date and time in start..end, or null if
+     * the field has another layout
+     */
+    static LocalDateTime dateTime(Chars chars, int start, int end) {
+        if (end - start == 16 && chars.charAt(start + 4) == '-' && chars.charAt(start + 7) == '-'
+                && chars.charAt(start + 10) == ' ' && chars.charAt(start + 13) == ':') {
+            int year = digits(chars, start, 4);
+            int month = digits(chars, start + 5, 2);
+            int day = digits(chars, start + 8, 2);
+            int hour = digits(chars, start + 11, 2);
+            int minute = digits(chars, start + 14, 2);
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute);
+            }
+        }
+        return null;
+    }
+
+    private static int digits(Chars chars, int from, int length) {
+        int value = 0;
+        for (int i = from; i < from + length; i++) {
+            int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
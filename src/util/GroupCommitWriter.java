@@ -0,0 +1,353 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton group-commit writer for append-only files.
+ * Files stay open between appends. Appends arriving within one batch
+ * window are coalesced into a single write per file, followed by at most
+ * one fsync per file when syncOnCommit is enabled.
+ *
+ * Durability and latency are traded through three settings:
+ * the batch window, whether each batch is fsynced, and whether append()
+ * waits for its batch to be written before returning.
+ */
+public class GroupCommitWriter {
+    private static GroupCommitWriter instance;
+
+    private final Map<String, FileLog> logs;
+    private final Object ioLock = new Object();
+    private final List<Runnable> shutdownDrains = new CopyOnWriteArrayList<>();
+    private volatile long batchWindowMillis = 2;
+    private volatile boolean syncOnCommit = false;
+    private volatile boolean waitForCommit = true;
+    private Thread flusher;
+
+    /**
+     * An append that has been queued; await() returns once it is written
+     */
+    public static class Commit {
+        private static final long CLOSED_CHECK_MILLIS = 100;
+
+        private final String path;
+        private final byte[] data;
+        private final FileLog log;
+        private final CountDownLatch written = new CountDownLatch(1);
+        private volatile IOException error;
+
+        private Commit(String path, byte[] data, FileLog log) {
+            this.path = path;
+            this.data = data;
+            this.log = log;
+        }
+
+        /**
+         * Waits until the batch holding this append has been written; fails
+         * rather than waiting forever if the file is closed without writing it
+         */
+        public void await() throws IOException {
+            try {
+                while (!written.await(CLOSED_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (log.closed && written.getCount() > 0) {
+                        throw new IOException("File closed before the append was written");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for commit", e);
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        private void complete(IOException failure) {
+            this.error = failure;
+            written.countDown();
+        }
+    }
+
+    /**
+     * An open append channel and the appends queued for it
+     */
+    private static class FileLog {
+        FileChannel channel;
+        List<Commit> pending = new ArrayList<>();
+        volatile boolean closed;
+    }
+
+    private GroupCommitWriter() {
+        this.logs = new HashMap<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "group-commit-shutdown"));
+    }
+
+    /**
+     * Returns the singleton instance of GroupCommitWriter
+     */
+    public static synchronized GroupCommitWriter getInstance() {
+        if (instance == null) {
+            instance = new GroupCommitWriter();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a step the shutdown hook runs, in registration order, before
+     * closing the files: producers that append from background threads
+     * drain there, so their last appends are not racing the close. Shutdown
+     * hooks run in no fixed order, so producers must not use their own.
+     */
+    public void runBeforeShutdown(Runnable drain) {
+        shutdownDrains.add(drain);
+    }
+
+    /**
+     * Sets how long the flusher gathers appends before writing a batch
+     */
+    public void setBatchWindowMillis(long batchWindowMillis) {
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    /**
+     * Sets whether each batch is forced to disk before its appends complete
+     */
+    public void setSyncOnCommit(boolean syncOnCommit) {
+        this.syncOnCommit = syncOnCommit;
+    }
+
+    /**
+     * Sets whether append() blocks until its batch has been written
+     */
+    public void setWaitForCommit(boolean waitForCommit) {
+        this.waitForCommit = waitForCommit;
+    }
+
+    /**
+     * Appends text to a file, waiting for the batch to be written if configured to
+     */
+    public void append(String path, String text) throws IOException {
+        Commit commit = submit(path, text);
+        if (waitForCommit) {
+            commit.await();
+        }
+    }
+
+    /**
+     * Queues text for appending and returns without waiting. Appends to the
+     * same file are written in the order they were submitted.
+     */
+    public synchronized Commit submit(String path, String text) {
+        FileLog log = logs.computeIfAbsent(path, p -> new FileLog());
+        Commit commit = new Commit(path, text.getBytes(StandardCharsets.UTF_8), log);
+        log.pending.add(commit);
+        if (flusher == null) {
+            flusher = new Thread(this::runFlusher, "group-commit-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+        notifyAll();
+        return commit;
+    }
+
+    /**
+     * Returns whether submitted appends wait for their batch in append()
+     */
+    public boolean isWaitForCommit() {
+        return waitForCommit;
+    }
+
+    /**
+     * Waits for a submitted append if append() would have, reporting a
+     * failure rather than throwing it. Lets a caller queue appends while
+     * holding a lock and wait once it has let go; null is ignored.
+     */
+    public void awaitCommit(Commit commit) {
+        if (commit == null || !waitForCommit) {
+            return;
+        }
+        try {
+            commit.await();
+        } catch (IOException e) {
+            System.err.println("Error appending to " + commit.path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes any queued appends for a file now
+     */
+    public void flush(String path) {
+        synchronized (ioLock) {
+            writePending(path);
+        }
+    }
+
+    /**
+     * Writes queued appends for a file and closes its channel, so the file
+     * can be rewritten, renamed or deleted
+     */
+    public void release(String path) {
+        synchronized (ioLock) {
+            FileLog log;
+            List<Commit> batch;
+            // The log leaves the map together with its queued appends, so an
+            // append submitted from now on starts a new log instead of being stranded
+            synchronized (this) {
+                log = logs.remove(path);
+                if (log == null) {
+                    return;
+                }
+                batch = log.pending;
+                log.pending = new ArrayList<>();
+            }
+            writeBatch(path, log, batch);
+            log.closed = true;
+            if (log.channel != null) {
+                try {
+                    log.channel.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing " + path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            synchronized (this) {
+                while (!hasPending()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            try {
+                // Let concurrent appends join this batch
+                Thread.sleep(batchWindowMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            flushAll();
+        }
+    }
+
+    /**
+     * Writes the queued appends of every file now
+     */
+    public void flushAll() {
+        synchronized (ioLock) {
+            List<String> paths;
+            synchronized (this) {
+                paths = new ArrayList<>(logs.keySet());
+            }
+            for (String path : paths) {
+                writePending(path);
+            }
+        }
+    }
+
+    private void shutdown() {
+        for (Runnable drain : shutdownDrains) {
+            try {
+                drain.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error draining appends at shutdown: " + e.getMessage());
+            }
+        }
+        closeAll();
+    }
+
+    private void closeAll() {
+        flushAll();
+        List<String> paths;
+        synchronized (this) {
+            paths = new ArrayList<>(logs.keySet());
+        }
+        for (String path : paths) {
+            release(path);
+        }
+    }
+
+    private synchronized boolean hasPending() {
+        for (FileLog log : logs.values()) {
+            if (!log.pending.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the appends queued for a file. Must be called while holding ioLock.
+     */
+    private void writePending(String path) {
+        FileLog log;
+        List<Commit> batch;
+        synchronized (this) {
+            log = logs.get(path);
+            if (log == null || log.pending.isEmpty()) {
+                return;
+            }
+            batch = log.pending;
+            log.pending = new ArrayList<>();
+        }
+        writeBatch(path, log, batch);
+    }
+
+    /**
+     * Writes one batch with a single write call (and one fsync if enabled).
+     * Must be called while holding ioLock.
+     */
+    private void writeBatch(String path, FileLog log, List<Commit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (Commit commit : batch) {
+            size += commit.data.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Commit commit : batch) {
+            buffer.put(commit.data);
+        }
+        buffer.flip();
+
+        IOException failure = null;
+        try {
+            FileChannel channel = channel(path, log);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (syncOnCommit) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            System.err.println("Error appending to " + path + ": " + e.getMessage());
+            failure = e;
+        }
+        for (Commit commit : batch) {
+            commit.complete(failure);
+        }
+    }
+
+    private FileChannel channel(String path, FileLog log) throws IOException {
+        if (log.channel == null || !log.channel.isOpen()) {
+            log.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return log.channel;
+    }
+}
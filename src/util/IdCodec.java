@@ -0,0 +1,84 @@
+package util;
+
+/**
+ * Compact form of entity IDs made of a fixed prefix and a decimal number,
+ * such as "P001", "C004", "APT1000" or "REF3000".
+ * An ID is packed into a non-negative int holding its number and its digit
+ * count, so "P001" and "P1" stay distinct keys; IDs that don't fit the
+ * pattern have no compact form and are left to ordinary String-keyed maps.
+ */
+public final class IdCodec {
+    /** Returned by encode() for an ID with no compact form */
+    public static final int NONE = -1;
+
+    public static final IdCodec PATIENT = new IdCodec("P");
+    public static final IdCodec CLINICIAN = new IdCodec("C");
+    public static final IdCodec APPOINTMENT = new IdCodec("APT");
+    public static final IdCodec PRESCRIPTION = new IdCodec("PRC");
+    public static final IdCodec REFERRAL = new IdCodec("REF");
+
+    /** Most digits a compact ID may have; 8 digits fit in ORDINAL_BITS */
+    private static final int MAX_DIGITS = 8;
+    private static final int ORDINAL_BITS = 27;
+
+    private final String prefix;
+
+    public IdCodec(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the compact key of an ID with this codec's prefix,
+     * or NONE if the ID has another prefix or is not prefix plus digits
+     */
+    public int encode(String id) {
+        if (id == null || !id.startsWith(prefix)) {
+            return NONE;
+        }
+        int digits = id.length() - prefix.length();
+        if (digits < 1 || digits > MAX_DIGITS) {
+            return NONE;
+        }
+        int ordinal = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return NONE;
+            }
+            ordinal = ordinal * 10 + (c - '0');
+        }
+        return digits << ORDINAL_BITS | ordinal;
+    }
+
+    /**
+     * Returns the number that follows the letters at the start of an ID,
+     * e.g. 1000 for "APT1000", or -1 if anything other than letters comes
+     * before the digits or the rest of the ID is not all digits
+     */
+    public static int ordinal(String id) {
+        if (id == null) {
+            return -1;
+        }
+        int start = 0;
+        while (start < id.length() && Character.isLetter(id.charAt(start))) {
+            start++;
+        }
+        int digits = id.length() - start;
+        if (digits < 1 || digits > 9) {
+            return -1;
+        }
+        int ordinal = 0;
+        for (int i = start; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            ordinal = ordinal * 10 + (c - '0');
+        }
+        return ordinal;
+    }
+}
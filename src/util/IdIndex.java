@@ -0,0 +1,104 @@
+package util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe index from entity ID to entity.
+ * IDs in the compact form of the index's IdCodec are kept in an
+ * IntObjectMap guarded by a StampedLock: lookups read optimistically and
+ * only take the read lock if a writer changed the map meanwhile, so they
+ * never wait for a writer that isn't mid-update. Any other IDs are kept in
+ * an ordinary concurrent map.
+ */
+public class IdIndex<V> {
+    private final IdCodec codec;
+    private final StampedLock lock = new StampedLock();
+    private final IntObjectMap<V> compact;
+    private final Map<String, V> other = new ConcurrentHashMap<>();
+
+    public IdIndex(IdCodec codec) {
+        this(codec, 0);
+    }
+
+    /**
+     * Creates an index sized to hold the given number of entities without growing
+     */
+    public IdIndex(IdCodec codec, int expectedSize) {
+        this.codec = codec;
+        this.compact = new IntObjectMap<>(expectedSize);
+    }
+
+    /**
+     * Returns the entity with the given ID, or null
+     */
+    public V get(String id) {
+        int key = codec.encode(id);
+        if (key == IdCodec.NONE) {
+            return id == null ? null : other.get(id);
+        }
+        long stamp = lock.tryOptimisticRead();
+        V value = compact.get(key);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return compact.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stores an entity under its ID, returning the one it replaced
+     */
+    public V put(String id, V value) {
+        int key = codec.encode(id);
+        if (key == IdCodec.NONE) {
+            return other.put(id, value);
+        }
+        long stamp = lock.writeLock();
+        try {
+            return compact.put(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the entity with the given ID, returning it, or null
+     */
+    public V remove(String id) {
+        int key = codec.encode(id);
+        if (key == IdCodec.NONE) {
+            return id == null ? null : other.remove(id);
+        }
+        long stamp = lock.writeLock();
+        try {
+            return compact.remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return compact.size() + other.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            compact.clear();
+            other.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package util;
+
+import java.util.Collection;
+
+/**
+ * MultiValueIndex keyed by entity ID, e.g. a patient ID to that patient's
+ * appointments. IDs in the compact form of the index's IdCodec key an
+ * IntObjectMap, avoiding a String-keyed hash entry per key; any other IDs
+ * fall back to the parent's map.
+ */
+public class IdMultiValueIndex<V> extends MultiValueIndex<String, V> {
+    private final IdCodec codec;
+    private final IntObjectMap<Collection<V>> compact;
+
+    public IdMultiValueIndex(IdCodec codec) {
+        this.codec = codec;
+        this.compact = new IntObjectMap<>();
+    }
+
+    @Override
+    protected Collection<V> values(String key) {
+        int id = codec.encode(key);
+        return id == IdCodec.NONE ? super.values(key) : compact.get(id);
+    }
+
+    @Override
+    protected void store(String key, Collection<V> values) {
+        int id = codec.encode(key);
+        if (id == IdCodec.NONE) {
+            super.store(key, values);
+        } else {
+            compact.put(id, values);
+        }
+    }
+
+    @Override
+    protected void drop(String key) {
+        int id = codec.encode(key);
+        if (id == IdCodec.NONE) {
+            super.drop(key);
+        } else {
+            compact.remove(id);
+        }
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        compact.clear();
+    }
+}
@@ -0,0 +1,166 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative int keys to values.
+ * Keys live in a primitive array probed linearly, so entries need no boxed
+ * key or node object; removal shifts later entries back instead of leaving
+ * tombstones.
+ *
+ * Not thread-safe for writers. get() may run while a writer is changing the
+ * map: it can then return a wrong answer but never fails or loops, so a
+ * caller can read optimistically and validate afterwards, as IdIndex does.
+ */
+public class IntObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // Keys are stored plus one so that 0 marks an empty slot
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public IntObjectMap() {
+        this(0);
+    }
+
+    /**
+     * Creates a map sized to hold the given number of entries without growing
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2 && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+    }
+
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the value stored under the given key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int[] k = keys;
+        Object[] v = values;
+        if (k.length != v.length) {
+            // Caught between the two array swaps of a resize
+            return null;
+        }
+        int mask = k.length - 1;
+        int stored = key + 1;
+        int i = slot(key, mask);
+        for (int probes = 0; probes < k.length; probes++) {
+            int current = k[i];
+            if (current == stored) {
+                return (V) v[i];
+            }
+            if (current == 0) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Stores a value under the given key, returning the value it replaced
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key < 0 || key == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Key out of range: " + key);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int stored = key + 1;
+        int i = slot(key, mask);
+        while (keys[i] != 0) {
+            if (keys[i] == stored) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = stored;
+        values[i] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Removes the value stored under the given key, returning it, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length - 1;
+        int stored = key + 1;
+        int i = slot(key, mask);
+        while (keys[i] != stored) {
+            if (keys[i] == 0) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        V removed = (V) values[i];
+        // Shift back any later entry of the probe run whose home slot is at or before the gap
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == 0) {
+                break;
+            }
+            int home = slot(keys[j] - 1, mask);
+            boolean movable = j > i ? (home <= i || home > j) : (home <= i && home > j);
+            if (movable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        values[i] = null;
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int capacity = oldKeys.length * 2;
+        int[] newKeys = new int[capacity];
+        Object[] newValues = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = slot(oldKeys[j] - 1, mask);
+                while (newKeys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                newKeys[i] = oldKeys[j];
+                newValues[i] = oldValues[j];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+}
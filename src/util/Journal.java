@@ -0,0 +1,277 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only write-ahead log kept next to a CSV snapshot file.
+ * Each mutation is one record: "U,&lt;entity CSV record&gt;" for an insert or
+ * update, "D,&lt;id&gt;" for a delete. Loading reads the snapshot and replays
+ * the journal over it, so a mutation costs one append instead of a rewrite
+ * of the whole snapshot. A torn final record (no trailing line break) left
+ * by a crash is ignored on replay.
+ */
+public class Journal {
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    private static final Map<String, ReentrantLock> SNAPSHOT_LOCKS = new ConcurrentHashMap<>();
+
+    private final String path;
+    private int pendingRecords;
+    private long pendingBytes;
+
+    /**
+     * Receives journal records in the order they were written
+     */
+    public interface Visitor {
+        /**
+         * An entity was inserted or updated; the row holds its CSV fields
+         */
+        void upsert(CSVRow row);
+
+        /**
+         * The entity with the given ID was deleted
+         */
+        void delete(String id);
+    }
+
+    /**
+     * Creates the journal belonging to the given snapshot file
+     */
+    public Journal(String snapshotFilename) {
+        this.path = journalPath(snapshotFilename);
+        countExistingRecords();
+    }
+
+    /**
+     * Returns the journal path for a snapshot file
+     */
+    public static String journalPath(String snapshotFilename) {
+        return snapshotFilename + JOURNAL_SUFFIX;
+    }
+
+    /**
+     * Returns the path a journal is moved to while it is folded into its snapshot
+     */
+    public static String compactingPath(String snapshotFilename) {
+        return journalPath(snapshotFilename) + COMPACTING_SUFFIX;
+    }
+
+    /**
+     * Returns the lock held while a snapshot and its journals are read and
+     * replayed, and while compaction rotates the journal and replaces the
+     * snapshot, so a load never sees the files half-way through a fold
+     */
+    public static ReentrantLock snapshotLock(String snapshotFilename) {
+        return SNAPSHOT_LOCKS.computeIfAbsent(new File(snapshotFilename).getAbsolutePath(),
+                path -> new ReentrantLock());
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of records in the live journal
+     */
+    public synchronized int getPendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * Returns the size in bytes of the live journal
+     */
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Records an inserted or updated entity
+     */
+    public void appendUpsert(String csvRecord) {
+        GroupCommitWriter.getInstance().awaitCommit(submitUpsert(csvRecord));
+    }
+
+    /**
+     * Records many inserted or updated entities with a single append
+     */
+    public void appendUpserts(List<String> csvRecords) {
+        GroupCommitWriter.getInstance().awaitCommit(submitUpserts(csvRecords));
+    }
+
+    /**
+     * Records a deleted entity
+     */
+    public void appendDelete(String id) {
+        GroupCommitWriter.getInstance().awaitCommit(submitDelete(id));
+    }
+
+    /**
+     * Queues an inserted or updated entity without waiting for it to be
+     * written; see GroupCommitWriter.awaitCommit
+     */
+    public GroupCommitWriter.Commit submitUpsert(String csvRecord) {
+        return submit("U," + csvRecord + "\n", 1);
+    }
+
+    /**
+     * Queues many inserted or updated entities as a single append without
+     * waiting for it to be written; returns null if there are none
+     */
+    public GroupCommitWriter.Commit submitUpserts(List<String> csvRecords) {
+        if (csvRecords.isEmpty()) {
+            return null;
+        }
+        StringBuilder records = new StringBuilder();
+        for (String csvRecord : csvRecords) {
+            records.append("U,").append(csvRecord).append('\n');
+        }
+        return submit(records.toString(), csvRecords.size());
+    }
+
+    /**
+     * Queues a deleted entity without waiting for it to be written
+     */
+    public GroupCommitWriter.Commit submitDelete(String id) {
+        return submit("D," + CSVTokenizer.escape(id) + "\n", 1);
+    }
+
+    // Queued under the lock so records keep their order; callers wait
+    // outside it so concurrent mutations can share one batch
+    private synchronized GroupCommitWriter.Commit submit(String record, int count) {
+        GroupCommitWriter.Commit commit = GroupCommitWriter.getInstance().submit(path, record);
+        pendingRecords += count;
+        pendingBytes += record.getBytes(StandardCharsets.UTF_8).length;
+        return commit;
+    }
+
+    /**
+     * Moves the live journal aside so it can be folded into the snapshot;
+     * later records start a new journal. Returns false if there was nothing
+     * to move, an earlier rotated journal has not been folded yet, or the
+     * move failed.
+     */
+    public synchronized boolean rotate() {
+        close();
+        File live = new File(path);
+        File compacting = new File(path + COMPACTING_SUFFIX);
+        if (!live.exists() || compacting.exists()) {
+            return false;
+        }
+        if (!live.renameTo(compacting)) {
+            System.err.println("Error rotating journal " + path);
+            return false;
+        }
+        pendingRecords = 0;
+        pendingBytes = 0;
+        return true;
+    }
+
+    /**
+     * Deletes the journal once its records are part of a freshly written snapshot
+     */
+    public synchronized void discard() {
+        close();
+        new File(path).delete();
+        new File(path + COMPACTING_SUFFIX).delete();
+        pendingRecords = 0;
+        pendingBytes = 0;
+    }
+
+    /**
+     * Writes queued records and closes the journal file
+     */
+    public synchronized void close() {
+        GroupCommitWriter.getInstance().release(path);
+    }
+
+    private void countExistingRecords() {
+        File file = new File(path);
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            for (byte b : Files.readAllBytes(file.toPath())) {
+                if (b == '\n') {
+                    pendingRecords++;
+                }
+            }
+            pendingBytes = file.length();
+        } catch (IOException e) {
+            System.err.println("Error reading journal " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays a journal file record by record. Does nothing if it does not exist.
+     */
+    public static void replay(String journalFile, Visitor visitor) throws IOException {
+        GroupCommitWriter.getInstance().flush(journalFile);
+        File file = new File(journalFile);
+        if (!file.exists()) {
+            return;
+        }
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        CSVTokenizer tokenizer = new CSVTokenizer();
+        OffsetRow row = new OffsetRow(tokenizer);
+        int start = 0;
+        while (start < content.length()) {
+            // A record ends at the first line break outside a quoted field
+            int end = content.indexOf('\n', start);
+            int fields = end < 0 ? -1 : tokenizer.tokenize(content.substring(start, end));
+            while (fields < 0 && end >= 0) {
+                end = content.indexOf('\n', end + 1);
+                fields = end < 0 ? -1 : tokenizer.tokenize(content.substring(start, end));
+            }
+            if (end < 0) {
+                break; // torn final record
+            }
+            String op = tokenizer.get(0);
+            if ("U".equals(op)) {
+                visitor.upsert(row);
+            } else if ("D".equals(op) && fields >= 2) {
+                visitor.delete(tokenizer.get(1));
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Presents the fields after the operation code as the entity record
+     */
+    private static class OffsetRow implements CSVRow {
+        private final CSVTokenizer tokenizer;
+
+        OffsetRow(CSVTokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+
+        @Override
+        public int size() {
+            return tokenizer.size() - 1;
+        }
+
+        @Override
+        public String get(int index) {
+            return tokenizer.get(index + 1);
+        }
+
+        @Override
+        public LocalDate getDate(int index) {
+            return tokenizer.getDate(index + 1);
+        }
+
+        @Override
+        public LocalDateTime getDateTime(int index) {
+            return tokenizer.getDateTime(index + 1);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package util;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * MultiValueIndex that keeps each key's values in a linked hash set, for
+ * keys shared by a large part of the data such as a status: removing a
+ * value is then constant time rather than a scan of the key's list.
+ * Values keep insertion order; each value is held at most once per key.
+ */
+public class LinkedSetMultiValueIndex<K, V> extends MultiValueIndex<K, V> {
+    @Override
+    protected Collection<V> newValues() {
+        return new LinkedHashSet<>();
+    }
+}
@@ -0,0 +1,105 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Secondary index mapping a key to every value that carries it,
+ * e.g. a patient ID to that patient's appointments.
+ * Values are kept per key in insertion order, in a list unless a subclass
+ * supplies another collection through newValues().
+ */
+public class MultiValueIndex<K, V> {
+    private Map<K, Collection<V>> entries;
+
+    public MultiValueIndex() {
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Adds a value under the given key
+     */
+    public void add(K key, V value) {
+        Collection<V> values = values(key);
+        if (values == null) {
+            values = newValues();
+            store(key, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Removes a value from the given key, dropping the key once empty
+     */
+    public boolean remove(K key, V value) {
+        Collection<V> values = values(key);
+        if (values == null || !values.remove(value)) {
+            return false;
+        }
+        if (values.isEmpty()) {
+            drop(key);
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of the values stored under the given key
+     */
+    public List<V> get(K key) {
+        Collection<V> values = values(key);
+        return values == null ? new ArrayList<>() : new ArrayList<>(values);
+    }
+
+    /**
+     * Returns up to limit values under the given key that pass the filter,
+     * stopping as soon as the limit is reached
+     */
+    public List<V> find(K key, Predicate<? super V> filter, int limit) {
+        List<V> result = new ArrayList<>();
+        Collection<V> values = values(key);
+        if (values == null) {
+            return result;
+        }
+        for (V value : values) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (filter.test(value)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns an empty collection to hold the values of a new key
+     */
+    protected Collection<V> newValues() {
+        return new ArrayList<>(4);
+    }
+
+    // Storage of the per-key collections, overridden by IdMultiValueIndex
+
+    /**
+     * Returns the collection stored under the given key, or null
+     */
+    protected Collection<V> values(K key) {
+        return entries.get(key);
+    }
+
+    protected void store(K key, Collection<V> values) {
+        entries.put(key, values);
+    }
+
+    protected void drop(K key) {
+        entries.remove(key);
+    }
+}
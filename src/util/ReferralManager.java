@@ -1,13 +1,17 @@
 package util;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import model.Clinician;
 import model.Patient;
 import model.Referral;
@@ -16,18 +20,60 @@ import model.Referral;
  * Singleton class for managing referrals in the healthcare system.
  * Ensures single instance for managing referral queues, email communications,
  * and electronic health record updates.
+ * Email and EHR notifications are built and written on background workers
+ * fed by a bounded queue; when the queue is full the caller writes the
+ * notification itself, which slows producers down instead of dropping work.
+ * Safe for concurrent use: the referral list and secondary indexes are
+ * guarded by a read-write lock, ID lookups read an IdIndex optimistically
+ * and the triage queue is lock-free.
  */
 public class ReferralManager {
     private static ReferralManager instance;
-    private Queue<Referral> referralQueue;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ReferralTriageQueue referralQueue;
     private List<Referral> allReferrals;
-    private static final String EMAIL_LOG_FILE = "data/email_communications.txt";
-    private static final String EHR_LOG_FILE = "data/ehr_updates.txt";
+    private IdIndex<Referral> referralIndex;
+    private MultiValueIndex<String, Referral> referralsByPatient;
+    private MultiValueIndex<String, Referral> referralsByGp;
+    private MultiValueIndex<String, Referral> referralsBySpecialist;
+    private MultiValueIndex<String, Referral> referralsByStatus;
+    private MultiValueIndex<String, Referral> referralsByUrgency;
+    private SortedIndex<LocalDate, Referral> referralsByDate;
+    private static final String EMAIL_LOG_NAME = "email_communications.txt";
+    private static final String EHR_LOG_NAME = "ehr_updates.txt";
+    private volatile String emailLogFile = "data/" + EMAIL_LOG_NAME;
+    private volatile String ehrLogFile = "data/" + EHR_LOG_NAME;
+    private static final int NOTIFICATION_WORKERS = 2;
+    private static final int NOTIFICATION_QUEUE_CAPACITY = 256;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private final ThreadPoolExecutor notifier;
 
     // Private constructor to prevent instantiation
     private ReferralManager() {
-        this.referralQueue = new LinkedList<>();
+        this.referralQueue = new ReferralTriageQueue();
         this.allReferrals = new ArrayList<>();
+        this.referralIndex = new IdIndex<>(IdCodec.REFERRAL);
+        this.referralsByPatient = new IdMultiValueIndex<>(IdCodec.PATIENT);
+        this.referralsByGp = new IdMultiValueIndex<>(IdCodec.CLINICIAN);
+        this.referralsBySpecialist = new IdMultiValueIndex<>(IdCodec.CLINICIAN);
+        this.referralsByStatus = new LinkedSetMultiValueIndex<>();
+        this.referralsByUrgency = new LinkedSetMultiValueIndex<>();
+        this.referralsByDate = new SortedIndex<>();
+        this.notifier = createNotifier();
+        // Drained from the writer's shutdown hook, so notifications finish before its files close
+        GroupCommitWriter.getInstance().runBeforeShutdown(this::shutdown);
+    }
+
+    private static ThreadPoolExecutor createNotifier() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(NOTIFICATION_WORKERS, NOTIFICATION_WORKERS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(NOTIFICATION_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "referral-notifier-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     /**
@@ -40,34 +86,198 @@ public class ReferralManager {
         return instance;
     }
 
+    /**
+     * Sets the directory the email and EHR notification logs are written to
+     */
+    public void setLogDirectory(String directory) {
+        String dir = directory.endsWith("/") ? directory : directory + "/";
+        this.emailLogFile = dir + EMAIL_LOG_NAME;
+        this.ehrLogFile = dir + EHR_LOG_NAME;
+    }
+
     /**
      * Adds a referral to the queue and processes it
      */
     public void addReferral(Referral referral, Patient patient, Clinician gp, Clinician specialist) {
+        lock.writeLock().lock();
+        try {
+            allReferrals.add(referral);
+            indexReferral(referral);
+        } finally {
+            lock.writeLock().unlock();
+        }
         referralQueue.offer(referral);
-        allReferrals.add(referral);
         
         // Process the referral
         processReferral(referral, patient, gp, specialist);
     }
 
     /**
-     * Processes a referral by generating email and updating EHR
+     * Adds many referrals at once, e.g. from a bulk import: they are indexed
+     * under one lock, and their notifications are built by a single
+     * background task and written with one append per log file. Patients
+     * and clinicians are looked up by ID.
+     */
+    public void addReferrals(List<Referral> referrals, Function<String, Patient> patients,
+                             Function<String, Clinician> clinicians) {
+        lock.writeLock().lock();
+        try {
+            for (Referral referral : referrals) {
+                allReferrals.add(referral);
+                indexReferral(referral);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Referral> snapshots = new ArrayList<>(referrals.size());
+        List<Patient> referralPatients = new ArrayList<>(referrals.size());
+        List<Clinician> gps = new ArrayList<>(referrals.size());
+        List<Clinician> specialists = new ArrayList<>(referrals.size());
+        for (Referral referral : referrals) {
+            referralQueue.offer(referral);
+            snapshots.add(snapshot(referral));
+            referralPatients.add(patients.apply(referral.getPatientId()));
+            gps.add(clinicians.apply(referral.getGpId()));
+            specialists.add(clinicians.apply(referral.getSpecialistId()));
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        submitNotification(() -> {
+            StringBuilder emails = new StringBuilder();
+            StringBuilder ehrUpdates = new StringBuilder();
+            for (int i = 0; i < snapshots.size(); i++) {
+                Referral snapshot = snapshots.get(i);
+                try {
+                    String email = generateEmailCommunication(snapshot, referralPatients.get(i), gps.get(i),
+                            specialists.get(i), createdAt);
+                    String ehrUpdate = generateEhrUpdate(snapshot, referralPatients.get(i), createdAt);
+                    emails.append(email);
+                    ehrUpdates.append(ehrUpdate);
+                } catch (RuntimeException e) {
+                    System.err.println("Error writing notifications for referral "
+                            + snapshot.getReferralId() + ": " + e.getMessage());
+                }
+            }
+            writeToFile(emailLogFile, emails.toString());
+            writeToFile(ehrLogFile, ehrUpdates.toString());
+        });
+    }
+
+    /**
+     * Replaces the known referrals with those read from storage,
+     * without queueing or notifying
+     */
+    public void loadReferrals(List<Referral> referrals) {
+        lock.writeLock().lock();
+        try {
+            allReferrals.clear();
+            clearIndexes();
+            for (Referral referral : referrals) {
+                allReferrals.add(referral);
+                indexReferral(referral);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers hold the write lock for these index updates
+
+    private void indexReferral(Referral referral) {
+        referralIndex.put(referral.getReferralId(), referral);
+        referralsByPatient.add(referral.getPatientId(), referral);
+        referralsByGp.add(referral.getGpId(), referral);
+        referralsBySpecialist.add(referral.getSpecialistId(), referral);
+        referralsByStatus.add(indexKey(referral.getStatus()), referral);
+        referralsByUrgency.add(indexKey(referral.getUrgency()), referral);
+        referralsByDate.add(referral.getReferralDate(), referral);
+    }
+
+    /**
+     * Status and urgency are matched ignoring case, so they are indexed upper-cased
+     */
+    private static String indexKey(String value) {
+        return value == null ? null : value.toUpperCase();
+    }
+
+    private void clearIndexes() {
+        referralIndex.clear();
+        referralsByPatient.clear();
+        referralsByGp.clear();
+        referralsBySpecialist.clear();
+        referralsByStatus.clear();
+        referralsByUrgency.clear();
+        referralsByDate.clear();
+    }
+
+    /**
+     * Queues the email and EHR notifications for a referral. The referral is
+     * copied so later status changes do not leak into its notifications.
      */
     private void processReferral(Referral referral, Patient patient, Clinician gp, Clinician specialist) {
-        generateEmailCommunication(referral, patient, gp, specialist);
-        updateElectronicHealthRecord(referral, patient);
+        Referral snapshot = snapshot(referral);
+        LocalDateTime createdAt = LocalDateTime.now();
+        submitNotification(() -> {
+            try {
+                writeToFile(emailLogFile, generateEmailCommunication(snapshot, patient, gp, specialist, createdAt));
+                writeToFile(ehrLogFile, generateEhrUpdate(snapshot, patient, createdAt));
+            } catch (RuntimeException e) {
+                System.err.println("Error writing notifications for referral "
+                        + snapshot.getReferralId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private static Referral snapshot(Referral referral) {
+        return new Referral(referral.getReferralId(), referral.getPatientId(), referral.getGpId(),
+                referral.getSpecialistId(), referral.getReferralDate(), referral.getReason(),
+                referral.getUrgency(), referral.getStatus(), referral.getNotes());
+    }
+
+    /**
+     * Hands a notification to the background workers
+     */
+    private void submitNotification(Runnable notification) {
+        if (notifier.isShutdown()) {
+            notification.run(); // workers are gone; write it on this thread
+        } else {
+            notifier.execute(notification);
+        }
+    }
+
+    /**
+     * Returns the number of notifications waiting for a worker
+     */
+    public int getPendingNotifications() {
+        return notifier.getQueue().size();
+    }
+
+    /**
+     * Stops accepting notifications and waits for the queued ones to be
+     * written. Also runs from GroupCommitWriter's shutdown hook before it
+     * closes its files, so pending notifications survive a normal exit.
+     */
+    public void shutdown() {
+        notifier.shutdown();
+        try {
+            if (!notifier.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Timed out writing " + notifier.getQueue().size() + " referral notifications");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        GroupCommitWriter.getInstance().flushAll();
     }
 
     /**
      * Generates email communication for a referral
      */
-    private void generateEmailCommunication(Referral referral, Patient patient, Clinician gp, Clinician specialist) {
+    private String generateEmailCommunication(Referral referral, Patient patient, Clinician gp, Clinician specialist,
+                                            LocalDateTime createdAt) {
         StringBuilder emailContent = new StringBuilder();
         emailContent.append("=".repeat(80)).append("\n");
         emailContent.append("EMAIL COMMUNICATION - REFERRAL NOTIFICATION\n");
         emailContent.append("=".repeat(80)).append("\n");
-        emailContent.append(String.format("Date: %s\n", LocalDateTime.now()));
+        emailContent.append(String.format("Date: %s\n", createdAt));
         emailContent.append(String.format("Referral ID: %s\n\n", referral.getReferralId()));
         
         emailContent.append("FROM:\n");
@@ -106,18 +316,18 @@ public class ReferralManager {
         emailContent.append("Please review the patient's electronic health record for complete medical history.\n");
         emailContent.append("=".repeat(80)).append("\n\n");
         
-        writeToFile(EMAIL_LOG_FILE, emailContent.toString());
+        return emailContent.toString();
     }
 
     /**
-     * Updates the electronic health record for a referral
+     * Generates the electronic health record update for a referral
      */
-    private void updateElectronicHealthRecord(Referral referral, Patient patient) {
+    private String generateEhrUpdate(Referral referral, Patient patient, LocalDateTime createdAt) {
         StringBuilder ehrUpdate = new StringBuilder();
         ehrUpdate.append("=".repeat(80)).append("\n");
         ehrUpdate.append("ELECTRONIC HEALTH RECORD UPDATE\n");
         ehrUpdate.append("=".repeat(80)).append("\n");
-        ehrUpdate.append(String.format("Timestamp: %s\n", LocalDateTime.now()));
+        ehrUpdate.append(String.format("Timestamp: %s\n", createdAt));
         ehrUpdate.append(String.format("Update Type: REFERRAL\n\n"));
         
         ehrUpdate.append("PATIENT:\n");
@@ -141,23 +351,23 @@ public class ReferralManager {
         ehrUpdate.append("\nEHR updated successfully. Audit trail maintained.\n");
         ehrUpdate.append("=".repeat(80)).append("\n\n");
         
-        writeToFile(EHR_LOG_FILE, ehrUpdate.toString());
+        return ehrUpdate.toString();
     }
 
     /**
-     * Writes content to a file (appending mode)
+     * Appends content to a file through the group-commit writer
      */
     private void writeToFile(String filename, String content) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, true))) {
-            writer.write(content);
-            writer.flush();
+        try {
+            GroupCommitWriter.getInstance().append(filename, content);
         } catch (IOException e) {
             System.err.println("Error writing to file " + filename + ": " + e.getMessage());
         }
     }
 
     /**
-     * Gets the next referral from the queue
+     * Gets the next referral to triage: the most urgent first, oldest first
+     * within an urgency, with long-waiting referrals aged forward
      */
     public Referral getNextReferral() {
         return referralQueue.poll();
@@ -167,44 +377,124 @@ public class ReferralManager {
      * Gets all referrals
      */
     public List<Referral> getAllReferrals() {
-        return new ArrayList<>(allReferrals);
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(allReferrals);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets up to limit referrals from the given position, copying only that page
+     */
+    public List<Referral> getReferrals(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = Math.min(Math.max(offset, 0), allReferrals.size());
+            int to = from + Math.min(Math.max(limit, 0), allReferrals.size() - from);
+            return new ArrayList<>(allReferrals.subList(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a referral by its ID, or null if unknown
+     */
+    public Referral getReferralById(String referralId) {
+        return referralIndex.get(referralId);
     }
 
     /**
      * Gets referrals for a specific patient
      */
     public List<Referral> getReferralsByPatient(String patientId) {
-        List<Referral> patientReferrals = new ArrayList<>();
-        for (Referral referral : allReferrals) {
-            if (referral.getPatientId().equals(patientId)) {
-                patientReferrals.add(referral);
-            }
+        lock.readLock().lock();
+        try {
+            return referralsByPatient.get(patientId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets referrals made by a specific GP
+     */
+    public List<Referral> getReferralsByGp(String gpId) {
+        lock.readLock().lock();
+        try {
+            return referralsByGp.get(gpId);
+        } finally {
+            lock.readLock().unlock();
         }
-        return patientReferrals;
     }
 
     /**
      * Gets referrals for a specific specialist
      */
     public List<Referral> getReferralsBySpecialist(String specialistId) {
-        List<Referral> specialistReferrals = new ArrayList<>();
-        for (Referral referral : allReferrals) {
-            if (referral.getSpecialistId().equals(specialistId)) {
-                specialistReferrals.add(referral);
-            }
+        lock.readLock().lock();
+        try {
+            return referralsBySpecialist.get(specialistId);
+        } finally {
+            lock.readLock().unlock();
         }
-        return specialistReferrals;
     }
 
     /**
      * Updates referral status
      */
     public void updateReferralStatus(String referralId, String newStatus) {
-        for (Referral referral : allReferrals) {
-            if (referral.getReferralId().equals(referralId)) {
+        Referral referral = referralIndex.get(referralId);
+        if (referral != null) {
+            lock.writeLock().lock();
+            try {
+                referralsByStatus.remove(indexKey(referral.getStatus()), referral);
                 referral.setStatus(newStatus);
-                break;
+                referralsByStatus.add(indexKey(newStatus), referral);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Finds up to limit referrals matching every given criterion; null
+     * criteria match anything. The clinician may be the GP or the specialist,
+     * status and urgency ignore case, and the date range includes both ends.
+     * The most selective index given drives the search.
+     */
+    public List<Referral> findReferrals(String clinicianId, String status, String urgency,
+                                        LocalDate from, LocalDate to, int limit) {
+        Predicate<Referral> filter = referral ->
+                (status == null || status.equalsIgnoreCase(referral.getStatus()))
+                && (urgency == null || urgency.equalsIgnoreCase(referral.getUrgency()))
+                && (from == null || (referral.getReferralDate() != null && !referral.getReferralDate().isBefore(from)))
+                && (to == null || (referral.getReferralDate() != null && !referral.getReferralDate().isAfter(to)));
+        lock.readLock().lock();
+        try {
+            if (clinicianId != null) {
+                List<Referral> result = referralsByGp.find(clinicianId, filter, limit);
+                if (result.size() < limit) {
+                    // Skip referrals already found with this clinician as the GP
+                    result.addAll(referralsBySpecialist.find(clinicianId,
+                            filter.and(referral -> !clinicianId.equals(referral.getGpId())), limit - result.size()));
+                }
+                return result;
             }
+            if (from != null || to != null) {
+                return referralsByDate.find(from, to == null ? null : to.plusDays(1), filter, limit);
+            }
+            if (urgency != null) {
+                return referralsByUrgency.find(indexKey(urgency), filter, limit);
+            }
+            if (status != null) {
+                return referralsByStatus.find(indexKey(status), filter, limit);
+            }
+            return new ArrayList<>(allReferrals.subList(0, Math.min(Math.max(limit, 0), allReferrals.size())));
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -219,7 +509,13 @@ public class ReferralManager {
      * Clears all referrals (for testing purposes)
      */
     public void clearAllReferrals() {
+        lock.writeLock().lock();
+        try {
+            allReferrals.clear();
+            clearIndexes();
+        } finally {
+            lock.writeLock().unlock();
+        }
         referralQueue.clear();
-        allReferrals.clear();
     }
 }
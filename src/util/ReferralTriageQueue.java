@@ -0,0 +1,155 @@
+package util;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import model.Referral;
+
+/**
+ * Concurrent triage queue handing out referrals by urgency, then by referral date.
+ * Each urgency has its own lock-free skip-list lane; poll() compares the lane
+ * heads and claims the best one, so many workers can poll at once without a
+ * global lock.
+ *
+ * Aging keeps ROUTINE referrals from starving: each urgency step below
+ * EMERGENCY counts as agingDays of lateness, so a referral outranks any
+ * more urgent one dated more than (steps x agingDays) after it.
+ */
+public class ReferralTriageQueue {
+    /** Urgency levels from most to least urgent; unknown levels count as ROUTINE */
+    private static final String[] URGENCY_ORDER = {"EMERGENCY", "URGENT", "ROUTINE"};
+    private static final int DEFAULT_AGING_DAYS = 14;
+    /** Sorts before every real entry; used to read a lane's head without an exception when it is empty */
+    private static final Entry FIRST = new Entry(null, 0, Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private final ConcurrentSkipListSet<Entry>[] lanes;
+    private final AtomicLong sequence;
+    private final AtomicInteger size;
+    private volatile int agingDays;
+
+    /**
+     * A queued referral with the ordering key fixed at the time it was offered
+     */
+    private static class Entry implements Comparable<Entry> {
+        final Referral referral;
+        final int rank;
+        final long day;
+        final long seq;
+
+        Entry(Referral referral, int rank, long day, long seq) {
+            this.referral = referral;
+            this.rank = rank;
+            this.day = day;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byDay = Long.compare(day, other.day);
+            return byDay != 0 ? byDay : Long.compare(seq, other.seq);
+        }
+    }
+
+    public ReferralTriageQueue() {
+        this(DEFAULT_AGING_DAYS);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ReferralTriageQueue(int agingDays) {
+        this.lanes = new ConcurrentSkipListSet[URGENCY_ORDER.length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ConcurrentSkipListSet<>();
+        }
+        this.sequence = new AtomicLong();
+        this.size = new AtomicInteger();
+        this.agingDays = agingDays;
+    }
+
+    /**
+     * Sets how many days of waiting make up for one step of urgency
+     */
+    public void setAgingDays(int agingDays) {
+        this.agingDays = agingDays;
+    }
+
+    /**
+     * Adds a referral to the lane for its urgency
+     */
+    public void offer(Referral referral) {
+        LocalDate date = referral.getReferralDate() != null ? referral.getReferralDate() : LocalDate.now();
+        int rank = rank(referral.getUrgency());
+        lanes[rank].add(new Entry(referral, rank, date.toEpochDay(), sequence.getAndIncrement()));
+        size.incrementAndGet();
+    }
+
+    /**
+     * Removes and returns the referral to handle next, or null if the queue is empty
+     */
+    public Referral poll() {
+        while (true) {
+            Entry best = bestHead();
+            if (best == null) {
+                return null;
+            }
+            // Another worker may have claimed the same head; if so, look again
+            if (lanes[best.rank].remove(best)) {
+                size.decrementAndGet();
+                return best.referral;
+            }
+        }
+    }
+
+    /**
+     * Returns the referral poll() would hand out now, without removing it
+     */
+    public Referral peek() {
+        Entry best = bestHead();
+        return best != null ? best.referral : null;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    public void clear() {
+        for (ConcurrentSkipListSet<Entry> lane : lanes) {
+            while (lane.pollFirst() != null) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Compares the lane heads by aged date, then urgency, and returns the winner
+     */
+    private Entry bestHead() {
+        Entry best = null;
+        long bestKey = Long.MAX_VALUE;
+        for (ConcurrentSkipListSet<Entry> lane : lanes) {
+            Entry head = lane.ceiling(FIRST);
+            if (head != null) {
+                // Each urgency step below EMERGENCY counts as agingDays of lateness
+                long key = head.day + (long) head.rank * agingDays;
+                if (best == null || key < bestKey || (key == bestKey && head.rank < best.rank)) {
+                    best = head;
+                    bestKey = key;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int rank(String urgency) {
+        for (int i = 0; i < URGENCY_ORDER.length; i++) {
+            if (URGENCY_ORDER[i].equalsIgnoreCase(urgency)) {
+                return i;
+            }
+        }
+        return URGENCY_ORDER.length - 1;
+    }
+}
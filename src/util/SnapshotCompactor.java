@@ -0,0 +1,241 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background service that folds journals into fresh CSV snapshots.
+ * A journal is compacted once it exceeds a record-count or size threshold:
+ * it is rotated aside, merged with the current snapshot into a temporary
+ * file, and the result replaces the snapshot with an atomic rename.
+ * The merge streams the snapshot, so memory use is bounded by the journal.
+ * Compaction runs on its own daemon thread and never touches the in-memory
+ * model, so it does not hold up the UI or the controller. It holds the
+ * snapshot's Journal.snapshotLock throughout, so a load replaying the same
+ * files waits for it rather than missing records moved mid-read.
+ */
+public class SnapshotCompactor {
+    private final List<Target> targets;
+    private volatile int maxPendingRecords;
+    private volatile long maxPendingBytes;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * A journal and the snapshot it is folded into
+     */
+    private static class Target {
+        final Journal journal;
+        final String snapshotFile;
+        final String header;
+
+        Target(Journal journal, String snapshotFile, String header) {
+            this.journal = journal;
+            this.snapshotFile = snapshotFile;
+            this.header = header;
+        }
+    }
+
+    public SnapshotCompactor(int maxPendingRecords, long maxPendingBytes) {
+        this.targets = new CopyOnWriteArrayList<>();
+        this.maxPendingRecords = maxPendingRecords;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * Registers a journal for compaction. The header is used if the snapshot does not exist yet.
+     */
+    public void register(Journal journal, String snapshotFile, String header) {
+        targets.add(new Target(journal, snapshotFile, header));
+    }
+
+    /**
+     * Sets the journal size at which compaction starts, whichever is reached first
+     */
+    public void setThresholds(int maxPendingRecords, long maxPendingBytes) {
+        this.maxPendingRecords = maxPendingRecords;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * Starts checking the registered journals at the given interval
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-compactor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> compact(false), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background checks, letting a compaction in progress finish
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Schedules an immediate compaction of every journal regardless of thresholds
+     */
+    public synchronized void compactNow() {
+        if (scheduler != null) {
+            scheduler.execute(() -> compact(true));
+        }
+    }
+
+    private void compact(boolean force) {
+        for (Target target : targets) {
+            ReentrantLock snapshotLock = Journal.snapshotLock(target.snapshotFile);
+            snapshotLock.lock();
+            try {
+                // Finish a rotated journal left behind by a failed or interrupted run first
+                if (new File(Journal.compactingPath(target.snapshotFile)).exists()) {
+                    fold(target);
+                }
+                if (needsCompaction(target.journal, force) && target.journal.rotate()) {
+                    fold(target);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error compacting " + target.snapshotFile + ": " + e.getMessage());
+            } finally {
+                snapshotLock.unlock();
+            }
+        }
+    }
+
+    private boolean needsCompaction(Journal journal, boolean force) {
+        int records = journal.getPendingRecords();
+        return records > 0 && (force || records >= maxPendingRecords || journal.getPendingBytes() >= maxPendingBytes);
+    }
+
+    /**
+     * Merges the rotated journal into the snapshot and publishes the result
+     */
+    private void fold(Target target) throws IOException {
+        String compactingFile = Journal.compactingPath(target.snapshotFile);
+
+        // Latest version of every changed record, null for deletions
+        Map<String, String> changes = new LinkedHashMap<>();
+        Journal.replay(compactingFile, new Journal.Visitor() {
+            @Override
+            public void upsert(CSVRow row) {
+                String id = row.get(0);
+                if (changes.containsKey(id) && changes.get(id) == null) {
+                    changes.remove(id); // re-created after a delete: keep it in creation order
+                }
+                changes.put(id, toRecord(row));
+            }
+
+            @Override
+            public void delete(String id) {
+                changes.put(id, null);
+            }
+        });
+
+        File snapshot = new File(target.snapshotFile);
+        File temp = new File(target.snapshotFile + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            if (snapshot.exists()) {
+                copyWithChanges(snapshot, writer, changes);
+            } else {
+                writer.write(target.header);
+                writer.write('\n');
+            }
+            for (String record : changes.values()) {
+                if (record != null) {
+                    writer.write(record);
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+
+        // An open append channel would keep writing to the replaced file, and
+        // blocks the rename on Windows
+        GroupCommitWriter.getInstance().release(target.snapshotFile);
+        Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(Paths.get(compactingFile));
+        System.out.println("Compacted " + target.snapshotFile);
+    }
+
+    /**
+     * Streams the snapshot to the writer, replacing or dropping changed
+     * records and removing them from the change map as they are applied
+     */
+    private void copyWithChanges(File snapshot, BufferedWriter writer, Map<String, String> changes)
+            throws IOException {
+        CSVTokenizer tokenizer = new CSVTokenizer();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(snapshot), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header != null) {
+                writer.write(header);
+                writer.write('\n');
+            }
+            String record;
+            while ((record = reader.readLine()) != null) {
+                int fields = tokenizer.tokenize(record);
+                while (fields < 0) {
+                    String continuation = reader.readLine();
+                    if (continuation == null) {
+                        break;
+                    }
+                    record = record + "\n" + continuation;
+                    fields = tokenizer.tokenize(record);
+                }
+                String id = fields > 0 ? tokenizer.get(0) : null;
+                if (id != null && changes.containsKey(id)) {
+                    record = changes.remove(id);
+                }
+                if (record != null) {
+                    writer.write(record);
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    private static String toRecord(CSVRow row) {
+        StringBuilder record = new StringBuilder(128);
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                record.append(',');
+            }
+            record.append(CSVTokenizer.escape(row.get(i)));
+        }
+        return record.toString();
+    }
+}
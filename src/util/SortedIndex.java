@@ -0,0 +1,92 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Ordered secondary index mapping a key to every value that carries it,
+ * e.g. a date to the prescriptions issued that day, or a lower-cased
+ * name to the patients with that name. Supports range and, for String
+ * keys, prefix queries in O(log n + k).
+ * Not thread-safe; callers guard it with the lock of the data it indexes.
+ */
+public class SortedIndex<K extends Comparable<? super K>, V> {
+    private NavigableMap<K, List<V>> entries;
+
+    public SortedIndex() {
+        this.entries = new TreeMap<>();
+    }
+
+    /**
+     * Adds a value under the given key; null keys are not indexed
+     */
+    public void add(K key, V value) {
+        if (key != null) {
+            entries.computeIfAbsent(key, k -> new ArrayList<>(2)).add(value);
+        }
+    }
+
+    /**
+     * Removes a value from the given key, dropping the key once empty
+     */
+    public boolean remove(K key, V value) {
+        List<V> values = key == null ? null : entries.get(key);
+        if (values == null || !values.remove(value)) {
+            return false;
+        }
+        if (values.isEmpty()) {
+            entries.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Returns up to limit values with keys from (inclusive) up to (exclusive)
+     * the given bounds that pass the filter, in key order. A null bound is
+     * open; a value stored under several keys is returned once.
+     */
+    public List<V> find(K from, K to, Predicate<? super V> filter, int limit) {
+        NavigableMap<K, List<V>> range = entries;
+        if (from != null && to != null) {
+            if (from.compareTo(to) >= 0) {
+                return new ArrayList<>();
+            }
+            range = entries.subMap(from, true, to, false);
+        } else if (from != null) {
+            range = entries.tailMap(from, true);
+        } else if (to != null) {
+            range = entries.headMap(to, false);
+        }
+
+        List<V> result = new ArrayList<>();
+        Set<V> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<V> values : range.values()) {
+            for (V value : values) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                if (filter.test(value) && seen.add(value)) {
+                    result.add(value);
+                }
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the exclusive upper bound of all strings starting with the given prefix
+     */
+    public static String prefixEnd(String prefix) {
+        return prefix + Character.MAX_VALUE;
+    }
+}
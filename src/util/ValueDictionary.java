@@ -0,0 +1,67 @@
+package util;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared dictionary of immutable field values that repeat across many
+ * records, such as statuses, appointment types, urgencies, drug names,
+ * clinician IDs and dates. Interning a value returns one canonical instance
+ * per distinct value, so millions of loaded records share a handful of
+ * instances instead of each holding its own copy.
+ *
+ * Only fields with few distinct values should be interned. Once the
+ * dictionary is full, new values are returned as they are rather than added.
+ */
+public class ValueDictionary {
+    private static final int MAX_VALUES = 1 << 18;
+    private static final ValueDictionary INSTANCE = new ValueDictionary();
+
+    private final Map<Object, Object> values;
+
+    private ValueDictionary() {
+        this.values = new ConcurrentHashMap<>();
+    }
+
+    public static ValueDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the shared instance equal to the given value, or null for null
+     */
+    public String intern(String value) {
+        return share(value);
+    }
+
+    /**
+     * Returns the shared instance equal to the given date, or null for null
+     */
+    public LocalDate intern(LocalDate value) {
+        return share(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T share(T value) {
+        if (value == null) {
+            return null;
+        }
+        Object shared = values.get(value);
+        if (shared != null) {
+            return (T) shared;
+        }
+        if (values.size() >= MAX_VALUES) {
+            return value;
+        }
+        shared = values.putIfAbsent(value, value);
+        return shared != null ? (T) shared : value;
+    }
+
+    /**
+     * Returns the number of distinct values held
+     */
+    public int size() {
+        return values.size();
+    }
+}
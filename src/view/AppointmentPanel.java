@@ -1,12 +1,13 @@
 package view;
 
+import controller.DisplayProjection;
+import controller.EntityChangeEvent;
 import controller.HealthcareController;
 import java.awt.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import model.Appointment;
 import model.Clinician;
 import model.Patient;
@@ -17,7 +18,8 @@ import model.Patient;
 public class AppointmentPanel extends JPanel {
     private HealthcareController controller;
     private JTable appointmentTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Appointment> tableModel;
+    private FilterField filterField;
     private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
     public AppointmentPanel(HealthcareController controller) {
@@ -26,22 +28,40 @@ public class AppointmentPanel extends JPanel {
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         initializeComponents();
+
+        // Only the changed rows are updated after a create, change or delete
+        controller.addChangeListener(event -> {
+            if (event.getEntityType() == EntityChangeEvent.EntityType.APPOINTMENT) {
+                SwingUtilities.invokeLater(() -> {
+                    // A filtered table is re-queried, as the change may add or drop matches
+                    if (filterField.isActive()) {
+                        refreshData();
+                    } else {
+                        tableModel.applyChange(event, controller::getAppointmentById);
+                    }
+                });
+            }
+        });
     }
 
     private void initializeComponents() {
-        // Title
+        // Title and filter
+        JPanel headerPanel = new JPanel(new BorderLayout());
         JLabel titleLabel = new JLabel("Appointment Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        add(titleLabel, BorderLayout.NORTH);
-        
-        // Table
-        String[] columnNames = {"Appointment ID", "Patient", "Clinician", "Date & Time", "Type", "Status"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        headerPanel.add(titleLabel, BorderLayout.NORTH);
+        filterField = new FilterField("clinician ID, status, yyyy-MM-dd[..yyyy-MM-dd]", filter -> refreshData());
+        headerPanel.add(filterField, BorderLayout.SOUTH);
+        add(headerPanel, BorderLayout.NORTH);
+        
+        // Table; cells are read from the appointments as they are painted
+        tableModel = new EntityTableModel<>(Appointment::getAppointmentId);
+        tableModel.addColumn("Appointment ID", Appointment::getAppointmentId);
+        tableModel.addColumn("Patient", apt -> patientName(apt.getPatientId()));
+        tableModel.addColumn("Clinician", apt -> clinicianName(apt.getClinicianId()));
+        tableModel.addColumn("Date & Time", apt -> apt.getAppointmentDateTime().format(formatter));
+        tableModel.addColumn("Type", Appointment::getAppointmentType);
+        tableModel.addColumn("Status", Appointment::getStatus);
         
         appointmentTable = new JTable(tableModel);
         appointmentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -69,24 +89,28 @@ public class AppointmentPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
+    /**
+     * Reloads the table, applying the filter if one is entered
+     */
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Appointment> appointments = controller.getAllAppointments();
-        
-        for (Appointment apt : appointments) {
-            Patient patient = controller.getPatientById(apt.getPatientId());
-            Clinician clinician = controller.getClinicianById(apt.getClinicianId());
-            
-            Object[] row = {
-                apt.getAppointmentId(),
-                patient != null ? patient.getFullName() : apt.getPatientId(),
-                clinician != null ? clinician.getFullName() : apt.getClinicianId(),
-                apt.getAppointmentDateTime().format(formatter),
-                apt.getAppointmentType(),
-                apt.getStatus()
-            };
-            tableModel.addRow(row);
+        String filter = filterField.getText();
+        if (filter.isEmpty()) {
+            tableModel.setRows(controller.getAllAppointments());
+            return;
         }
+        FilterField.Criteria criteria = FilterField.Criteria.parse(filter, id -> controller.getClinicianById(id) != null);
+        tableModel.setRows(controller.findAppointments(criteria.clinicianId, criteria.status,
+                criteria.from, criteria.to, FilterField.RESULT_LIMIT));
+    }
+
+    private String patientName(String patientId) {
+        DisplayProjection patient = controller.getPatientDisplay(patientId);
+        return patient != null ? patient.getFullName() : patientId;
+    }
+
+    private String clinicianName(String clinicianId) {
+        DisplayProjection clinician = controller.getClinicianDisplay(clinicianId);
+        return clinician != null ? clinician.getFullName() : clinicianId;
     }
 
     private void createAppointment() {
@@ -126,10 +150,17 @@ public class AppointmentPanel extends JPanel {
                 LocalDateTime dateTime = LocalDateTime.parse(dateTimeField.getText(), formatter);
                 String type = (String) typeCombo.getSelectedItem();
                 String notes = notesArea.getText();
-                
-                controller.createAppointment(patientId, clinicianId, dateTime, type, notes);
-                refreshData();
-                JOptionPane.showMessageDialog(this, "Appointment created successfully!");
+
+                dateTime = resolveConflict(patientId, clinicianId, dateTime, null);
+                if (dateTime == null) {
+                    return;
+                }
+                if (controller.createAppointment(patientId, clinicianId, dateTime, type, notes) != null) {
+                    JOptionPane.showMessageDialog(this, "Appointment created successfully!");
+                } else {
+                    JOptionPane.showMessageDialog(this, "The appointment overlaps another booking.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Error creating appointment: " + ex.getMessage(), 
                     "Error", JOptionPane.ERROR_MESSAGE);
@@ -137,6 +168,33 @@ public class AppointmentPanel extends JPanel {
         }
     }
 
+    /**
+     * Returns the time to book: the chosen one if it is free, or the next
+     * slot free for both clinician and patient if the user accepts it;
+     * null to give up
+     */
+    private LocalDateTime resolveConflict(String patientId, String clinicianId,
+                                          LocalDateTime dateTime, String appointmentId) {
+        List<Appointment> conflicts = controller.findConflicts(patientId, clinicianId, dateTime, appointmentId);
+        if (conflicts.isEmpty()) {
+            return dateTime;
+        }
+        StringBuilder message = new StringBuilder("This time overlaps:\n");
+        for (Appointment apt : conflicts) {
+            message.append("  ").append(apt.getAppointmentId()).append(" - ")
+                .append(patientName(apt.getPatientId())).append(" with ")
+                .append(clinicianName(apt.getClinicianId())).append(" at ")
+                .append(apt.getAppointmentDateTime().format(formatter)).append("\n");
+        }
+        LocalDateTime freeSlot = controller.findFirstFreeSlot(patientId, clinicianId, dateTime,
+            HealthcareController.SLOT_MINUTES, appointmentId);
+        message.append("\nThe next slot free for clinician and patient is ").append(freeSlot.format(formatter)).append('.');
+        Object[] options = {"Book " + freeSlot.format(formatter), "Cancel"};
+        int choice = JOptionPane.showOptionDialog(this, message.toString(), "Booking Conflict",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+        return choice == 0 ? freeSlot : null;
+    }
+
     private void modifyAppointment() {
         int selectedRow = appointmentTable.getSelectedRow();
         if (selectedRow == -1) {
@@ -163,9 +221,16 @@ public class AppointmentPanel extends JPanel {
             try {
                 LocalDateTime newDateTime = LocalDateTime.parse(dateTimeField.getText(), formatter);
                 String newNotes = notesArea.getText();
+
+                Appointment apt = controller.getAppointmentById(appointmentId);
+                if (apt != null) {
+                    newDateTime = resolveConflict(apt.getPatientId(), apt.getClinicianId(), newDateTime, appointmentId);
+                    if (newDateTime == null) {
+                        return;
+                    }
+                }
                 
                 if (controller.modifyAppointment(appointmentId, newDateTime, newNotes)) {
-                    refreshData();
                     JOptionPane.showMessageDialog(this, "Appointment modified successfully!");
                 } else {
                     JOptionPane.showMessageDialog(this, "Failed to modify appointment.", 
@@ -195,7 +260,6 @@ public class AppointmentPanel extends JPanel {
         
         if (confirm == JOptionPane.YES_OPTION) {
             if (controller.cancelAppointment(appointmentId)) {
-                refreshData();
                 JOptionPane.showMessageDialog(this, "Appointment cancelled successfully!");
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to cancel appointment.", 
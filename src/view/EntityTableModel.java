@@ -0,0 +1,147 @@
+package view;
+
+import controller.EntityChangeEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model over a list of entities.
+ * Cells are computed from the entity when the table asks for them, so only
+ * the rows in the visible viewport are ever turned into display values; the
+ * model itself holds just the list of entity references.
+ *
+ * Controller change events are applied row by row, firing an insert, update
+ * or delete for just the rows affected rather than rebuilding the table.
+ */
+class EntityTableModel<T> extends AbstractTableModel {
+    private final Function<T, String> idOf;
+    private final List<String> columnNames;
+    private final List<Function<T, Object>> columnValues;
+    private List<T> rows;
+    /** Row of each ID; built on the first change event and dropped when rows shift */
+    private Map<String, Integer> rowById;
+
+    EntityTableModel(Function<T, String> idOf) {
+        this.idOf = idOf;
+        this.columnNames = new ArrayList<>();
+        this.columnValues = new ArrayList<>();
+        this.rows = new ArrayList<>();
+    }
+
+    /**
+     * Adds a column whose cells are computed from each row's entity
+     */
+    void addColumn(String name, Function<T, Object> value) {
+        columnNames.add(name);
+        columnValues.add(value);
+    }
+
+    /**
+     * Replaces the rows shown; the list is kept and later modified in place, not copied
+     */
+    void setRows(List<T> rows) {
+        this.rows = rows;
+        this.rowById = null;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Returns the entity shown in the given row
+     */
+    T getRow(int row) {
+        return rows.get(row);
+    }
+
+    /**
+     * Applies a controller change to the affected rows only; lookup finds
+     * an added entity by ID. Must be called on the event dispatch thread.
+     */
+    void applyChange(EntityChangeEvent event, Function<String, T> lookup) {
+        switch (event.getChangeType()) {
+            case ADDED:
+                // Rows are appended, so a batch of additions is one insert event
+                int firstAdded = rows.size();
+                for (String id : event.getIds()) {
+                    T entity = lookup.apply(id);
+                    if (entity != null) {
+                        addRow(id, entity);
+                    }
+                }
+                if (rows.size() > firstAdded) {
+                    fireTableRowsInserted(firstAdded, rows.size() - 1);
+                }
+                break;
+            case UPDATED:
+                for (String id : event.getIds()) {
+                    Integer row = indexOf(id);
+                    if (row != null) {
+                        fireTableRowsUpdated(row, row);
+                    }
+                }
+                break;
+            case REMOVED:
+                for (String id : event.getIds()) {
+                    removeRow(id);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addRow(String id, T entity) {
+        Integer existing = indexOf(id);
+        if (existing != null) {
+            // Already picked up by a refresh made after the change
+            rows.set(existing, entity);
+            fireTableRowsUpdated(existing, existing);
+            return;
+        }
+        rowById.put(id, rows.size());
+        rows.add(entity);
+    }
+
+    private void removeRow(String id) {
+        Integer row = indexOf(id);
+        if (row != null) {
+            rows.remove((int) row);
+            // Later rows have moved up; rebuild the index when next needed
+            rowById = null;
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    private Integer indexOf(String id) {
+        if (rowById == null) {
+            rowById = new HashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) {
+                rowById.put(idOf.apply(rows.get(i)), i);
+            }
+        }
+        return rowById.get(id);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return columnValues.get(column).apply(rows.get(row));
+    }
+}
@@ -0,0 +1,123 @@
+package view;
+
+import java.awt.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * Text field that hands its contents to a search callback once the user
+ * has stopped typing for a moment, so a search runs once per pause rather
+ * than once per keystroke
+ */
+class FilterField extends JPanel {
+    /** Most rows a filtered table shows */
+    static final int RESULT_LIMIT = 1000;
+    private static final int DEBOUNCE_MILLIS = 250;
+    private static final String[] URGENCIES = {"EMERGENCY", "URGENT", "ROUTINE"};
+
+    private final JTextField textField;
+
+    FilterField(String hint, Consumer<String> onSearch) {
+        super(new FlowLayout(FlowLayout.LEFT));
+        textField = new JTextField(30);
+        textField.setToolTipText(hint);
+
+        Timer debounce = new Timer(DEBOUNCE_MILLIS, e -> onSearch.accept(getText()));
+        debounce.setRepeats(false);
+        textField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+
+        add(new JLabel("Filter:"));
+        add(textField);
+        add(new JLabel(hint));
+    }
+
+    /**
+     * Returns the trimmed filter text
+     */
+    String getText() {
+        return textField.getText().trim();
+    }
+
+    boolean isActive() {
+        return !getText().isEmpty();
+    }
+
+    /**
+     * Filter text split into criteria: a clinician ID, a status, an urgency
+     * and a date or date range written as yyyy-MM-dd or yyyy-MM-dd..yyyy-MM-dd.
+     * Any other word is taken as the status.
+     */
+    static class Criteria {
+        String clinicianId;
+        String status;
+        String urgency;
+        LocalDate from;
+        LocalDate to;
+
+        static Criteria parse(String text, Predicate<String> isClinician) {
+            Criteria criteria = new Criteria();
+            for (String token : text.trim().split("\\s+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                if (isClinician.test(token)) {
+                    criteria.clinicianId = token;
+                } else if (isUrgency(token)) {
+                    criteria.urgency = token;
+                } else if (!criteria.parseDates(token)) {
+                    criteria.status = token;
+                }
+            }
+            return criteria;
+        }
+
+        private boolean parseDates(String token) {
+            try {
+                int range = token.indexOf("..");
+                if (range < 0) {
+                    from = LocalDate.parse(token);
+                    to = from;
+                    return true;
+                }
+                String start = token.substring(0, range);
+                String end = token.substring(range + 2);
+                LocalDate first = start.isEmpty() ? null : LocalDate.parse(start);
+                LocalDate last = end.isEmpty() ? null : LocalDate.parse(end);
+                from = first;
+                to = last;
+                return true;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+
+        private static boolean isUrgency(String token) {
+            for (String urgency : URGENCIES) {
+                if (urgency.equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
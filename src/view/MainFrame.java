@@ -1,9 +1,12 @@
 package view;
 
 import controller.HealthcareController;
+import controller.LoadListener;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Main application window for Healthcare Management System
@@ -19,6 +22,27 @@ public class MainFrame extends JFrame {
     private ReferralPanel referralPanel;
     private PatientPanel patientPanel;
 
+    private JLabel statusBar;
+    private JMenuItem loadDataItem;
+    private SwingWorker<Void, LoadedFile> loader;
+
+    /**
+     * One data file finished loading, as reported by the background loader
+     */
+    private static class LoadedFile {
+        final String entity;
+        final int rows;
+        final long bytes;
+        final long elapsedNanos;
+
+        LoadedFile(String entity, int rows, long bytes, long elapsedNanos) {
+            this.entity = entity;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
     public MainFrame(HealthcareController controller) {
         this.controller = controller;
         
@@ -53,7 +77,7 @@ public class MainFrame extends JFrame {
         add(tabbedPane, BorderLayout.CENTER);
         
         // Add status bar
-        JLabel statusBar = new JLabel("Healthcare Management System - Ready");
+        statusBar = new JLabel("Healthcare Management System - Ready");
         statusBar.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
         add(statusBar, BorderLayout.SOUTH);
     }
@@ -63,7 +87,7 @@ public class MainFrame extends JFrame {
         
         // File menu
         JMenu fileMenu = new JMenu("File");
-        JMenuItem loadDataItem = new JMenuItem("Load Data");
+        loadDataItem = new JMenuItem("Load Data");
         JMenuItem exitItem = new JMenuItem("Exit");
         
         loadDataItem.addActionListener(e -> loadData());
@@ -85,30 +109,86 @@ public class MainFrame extends JFrame {
         setJMenuBar(menuBar);
     }
 
+    /**
+     * Loads the data files on a background thread so the window stays
+     * responsive; each panel is refreshed as soon as its file is installed
+     * and per-file throughput is shown in the status bar.
+     */
     private void loadData() {
-        try {
-            controller.loadPatients("data/patients.csv");
-            controller.loadClinicians("data/clinicians.csv");
-            controller.loadAppointments("data/appointments.csv");
-            controller.loadPrescriptions("data/prescriptions.csv");
-            controller.loadReferrals("data/referrals.csv");
-            
-            // Refresh all panels
-            patientPanel.refreshData();
-            appointmentPanel.refreshData();
-            prescriptionPanel.refreshData();
-            referralPanel.refreshData();
-            
-            JOptionPane.showMessageDialog(this, 
-                "Data loaded successfully!", 
-                "Success", 
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Error loading data: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
+        if (loader != null && !loader.isDone()) {
+            return;
         }
+        loadDataItem.setEnabled(false);
+        statusBar.setText("Loading data...");
+        final long start = System.nanoTime();
+
+        loader = new SwingWorker<Void, LoadedFile>() {
+            @Override
+            protected Void doInBackground() {
+                LoadListener listener = (entity, rows, bytes, elapsedNanos) ->
+                        publish(new LoadedFile(entity, rows, bytes, elapsedNanos));
+                controller.loadAllData("data", true, listener);
+                return null;
+            }
+
+            @Override
+            protected void process(List<LoadedFile> files) {
+                for (LoadedFile file : files) {
+                    showLoaded(file);
+                }
+            }
+
+            @Override
+            protected void done() {
+                loadDataItem.setEnabled(true);
+                try {
+                    get();
+                    statusBar.setText(String.format("Data loaded in %.1f s",
+                            (System.nanoTime() - start) / 1e9));
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                        "Data loaded successfully!",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    statusBar.setText("Error loading data");
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                        "Error loading data: " + cause.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        loader.execute();
+    }
+
+    /**
+     * Refreshes the panel showing a newly loaded file and reports its throughput
+     */
+    private void showLoaded(LoadedFile file) {
+        switch (file.entity) {
+            case "patients":
+                patientPanel.refreshData();
+                break;
+            case "appointments":
+                appointmentPanel.refreshData();
+                break;
+            case "prescriptions":
+                prescriptionPanel.refreshData();
+                break;
+            case "referrals":
+                referralPanel.refreshData();
+                break;
+            default:
+                break;
+        }
+        // Names in the other tables are looked up as they are painted
+        tabbedPane.repaint();
+
+        double seconds = Math.max(file.elapsedNanos, 1) / 1e9;
+        statusBar.setText(String.format("Loaded %,d %s (%,.1f KB) at %,.0f rows/s, %,.1f MB/s",
+                file.rows, file.entity, file.bytes / 1024.0,
+                file.rows / seconds, file.bytes / seconds / (1024 * 1024)));
     }
 
     private void showAbout() {
@@ -136,6 +216,10 @@ public class MainFrame extends JFrame {
         // Create and show GUI
         SwingUtilities.invokeLater(() -> {
             HealthcareController controller = new HealthcareController();
+            controller.setJournaling(Boolean.getBoolean("hms.journal"));
+            controller.setColumnarStorage(Boolean.getBoolean("hms.columnar"));
+            controller.setAppendDurability(Long.getLong("hms.commitWindowMillis", 2),
+                    Boolean.getBoolean("hms.fsync"), !Boolean.getBoolean("hms.asyncCommit"));
             MainFrame frame = new MainFrame(controller);
             frame.setVisible(true);
         });
@@ -1,13 +1,12 @@
 package view;
 
+import controller.EntityChangeEvent;
 import controller.HealthcareController;
 import java.awt.*;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import model.Patient;
 
 /**
@@ -16,7 +15,8 @@ import model.Patient;
 public class PatientPanel extends JPanel {
     private HealthcareController controller;
     private JTable patientTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Patient> tableModel;
+    private FilterField filterField;
 
     public PatientPanel(HealthcareController controller) {
         this.controller = controller;
@@ -24,22 +24,41 @@ public class PatientPanel extends JPanel {
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         initializeComponents();
+
+        // Only the changed rows are updated after a create, change or delete
+        controller.addChangeListener(event -> {
+            if (event.getEntityType() == EntityChangeEvent.EntityType.PATIENT) {
+                SwingUtilities.invokeLater(() -> {
+                    // A filtered table is re-queried, as the change may add or drop matches
+                    if (filterField.isActive()) {
+                        refreshData();
+                    } else {
+                        tableModel.applyChange(event, controller::getPatientById);
+                    }
+                });
+            }
+        });
     }
 
     private void initializeComponents() {
-        // Title
+        // Title and filter
+        JPanel headerPanel = new JPanel(new BorderLayout());
         JLabel titleLabel = new JLabel("Patient Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        add(titleLabel, BorderLayout.NORTH);
-        
-        // Table
-        String[] columnNames = {"Patient ID", "Name", "NHS Number", "Date of Birth", "Phone", "Email", "GP ID"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        headerPanel.add(titleLabel, BorderLayout.NORTH);
+        filterField = new FilterField("name, NHS number or patient ID", filter -> refreshData());
+        headerPanel.add(filterField, BorderLayout.SOUTH);
+        add(headerPanel, BorderLayout.NORTH);
+        
+        // Table; cells are read from the patients as they are painted
+        tableModel = new EntityTableModel<>(Patient::getPatientId);
+        tableModel.addColumn("Patient ID", Patient::getPatientId);
+        tableModel.addColumn("Name", Patient::getFullName);
+        tableModel.addColumn("NHS Number", Patient::getNhsNumber);
+        tableModel.addColumn("Date of Birth", Patient::getDateOfBirth);
+        tableModel.addColumn("Phone", Patient::getPhone);
+        tableModel.addColumn("Email", Patient::getEmail);
+        tableModel.addColumn("GP ID", Patient::getGpId);
         
         patientTable = new JTable(tableModel);
         patientTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -67,22 +86,13 @@ public class PatientPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
+    /**
+     * Reloads the table, applying the filter if one is entered
+     */
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Patient> patients = controller.getAllPatients();
-        
-        for (Patient patient : patients) {
-            Object[] row = {
-                patient.getPatientId(),
-                patient.getFullName(),
-                patient.getNhsNumber(),
-                patient.getDateOfBirth(),
-                patient.getPhone(),
-                patient.getEmail(),
-                patient.getGpId()
-            };
-            tableModel.addRow(row);
-        }
+        String filter = filterField.getText();
+        tableModel.setRows(filter.isEmpty() ? controller.getAllPatients()
+                : controller.searchPatients(filter, FilterField.RESULT_LIMIT));
     }
 
     private void viewPatientDetails() {
@@ -196,7 +206,6 @@ public class PatientPanel extends JPanel {
                         "Patient added successfully!\nPatient ID: " + newPatient.getPatientId(), 
                         "Success", 
                         JOptionPane.INFORMATION_MESSAGE);
-                    refreshData();
                 } else {
                     JOptionPane.showMessageDialog(this, 
                         "Failed to add patient. Please try again.", 
@@ -239,7 +248,6 @@ public class PatientPanel extends JPanel {
                     "Patient deleted successfully!", 
                     "Success", 
                     JOptionPane.INFORMATION_MESSAGE);
-                refreshData();
             } else {
                 JOptionPane.showMessageDialog(this, 
                     "Failed to delete patient. Patient may not exist.", 
@@ -1,12 +1,13 @@
 package view;
 
+import controller.DisplayProjection;
+import controller.EntityChangeEvent;
 import controller.HealthcareController;
 import model.Prescription;
 import model.Patient;
 import model.Clinician;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.List;
 
@@ -16,7 +17,8 @@ import java.util.List;
 public class PrescriptionPanel extends JPanel {
     private HealthcareController controller;
     private JTable prescriptionTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Prescription> tableModel;
+    private FilterField filterField;
 
     public PrescriptionPanel(HealthcareController controller) {
         this.controller = controller;
@@ -24,22 +26,41 @@ public class PrescriptionPanel extends JPanel {
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         initializeComponents();
+
+        // Only the changed rows are updated after a create, change or delete
+        controller.addChangeListener(event -> {
+            if (event.getEntityType() == EntityChangeEvent.EntityType.PRESCRIPTION) {
+                SwingUtilities.invokeLater(() -> {
+                    // A filtered table is re-queried, as the change may add or drop matches
+                    if (filterField.isActive()) {
+                        refreshData();
+                    } else {
+                        tableModel.applyChange(event, controller::getPrescriptionById);
+                    }
+                });
+            }
+        });
     }
 
     private void initializeComponents() {
-        // Title
+        // Title and filter
+        JPanel headerPanel = new JPanel(new BorderLayout());
         JLabel titleLabel = new JLabel("Prescription Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        add(titleLabel, BorderLayout.NORTH);
-        
-        // Table
-        String[] columnNames = {"Prescription ID", "Patient", "Clinician", "Date", "Condition", "Drug", "Dosage"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        headerPanel.add(titleLabel, BorderLayout.NORTH);
+        filterField = new FilterField("clinician ID, yyyy-MM-dd[..yyyy-MM-dd]", filter -> refreshData());
+        headerPanel.add(filterField, BorderLayout.SOUTH);
+        add(headerPanel, BorderLayout.NORTH);
+        
+        // Table; cells are read from the prescriptions as they are painted
+        tableModel = new EntityTableModel<>(Prescription::getPrescriptionId);
+        tableModel.addColumn("Prescription ID", Prescription::getPrescriptionId);
+        tableModel.addColumn("Patient", pres -> patientName(pres.getPatientId()));
+        tableModel.addColumn("Clinician", pres -> clinicianName(pres.getClinicianId()));
+        tableModel.addColumn("Date", Prescription::getPrescriptionDate);
+        tableModel.addColumn("Condition", Prescription::getCondition);
+        tableModel.addColumn("Drug", Prescription::getDrugName);
+        tableModel.addColumn("Dosage", Prescription::getDosage);
         
         prescriptionTable = new JTable(tableModel);
         prescriptionTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -64,25 +85,28 @@ public class PrescriptionPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
+    /**
+     * Reloads the table, applying the filter if one is entered
+     */
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Prescription> prescriptions = controller.getAllPrescriptions();
-        
-        for (Prescription pres : prescriptions) {
-            Patient patient = controller.getPatientById(pres.getPatientId());
-            Clinician clinician = controller.getClinicianById(pres.getClinicianId());
-            
-            Object[] row = {
-                pres.getPrescriptionId(),
-                patient != null ? patient.getFullName() : pres.getPatientId(),
-                clinician != null ? clinician.getFullName() : pres.getClinicianId(),
-                pres.getPrescriptionDate(),
-                pres.getCondition(),
-                pres.getDrugName(),
-                pres.getDosage()
-            };
-            tableModel.addRow(row);
+        String filter = filterField.getText();
+        if (filter.isEmpty()) {
+            tableModel.setRows(controller.getAllPrescriptions());
+            return;
         }
+        FilterField.Criteria criteria = FilterField.Criteria.parse(filter, id -> controller.getClinicianById(id) != null);
+        tableModel.setRows(controller.findPrescriptions(criteria.clinicianId,
+                criteria.from, criteria.to, FilterField.RESULT_LIMIT));
+    }
+
+    private String patientName(String patientId) {
+        DisplayProjection patient = controller.getPatientDisplay(patientId);
+        return patient != null ? patient.getFullName() : patientId;
+    }
+
+    private String clinicianName(String clinicianId) {
+        DisplayProjection clinician = controller.getClinicianDisplay(clinicianId);
+        return clinician != null ? clinician.getFullName() : clinicianId;
     }
 
     private void createPrescription() {
@@ -141,7 +165,6 @@ public class PrescriptionPanel extends JPanel {
                 
                 controller.createPrescription(patientId, clinicianId, condition, drug, 
                     dosage, duration, instructions);
-                refreshData();
                 JOptionPane.showMessageDialog(this, "Prescription created and saved successfully!");
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Error creating prescription: " + ex.getMessage(), 
@@ -160,14 +183,7 @@ public class PrescriptionPanel extends JPanel {
         
         String prescriptionId = (String) tableModel.getValueAt(selectedRow, 0);
         
-        // Find the prescription
-        Prescription prescription = null;
-        for (Prescription p : controller.getAllPrescriptions()) {
-            if (p.getPrescriptionId().equals(prescriptionId)) {
-                prescription = p;
-                break;
-            }
-        }
+        Prescription prescription = controller.getPrescriptionById(prescriptionId);
         
         if (prescription != null) {
             Patient patient = controller.getPatientById(prescription.getPatientId());
@@ -1,10 +1,11 @@
 package view;
 
+import controller.DisplayProjection;
+import controller.EntityChangeEvent;
 import controller.HealthcareController;
 import java.awt.*;
 import java.util.List;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import model.Clinician;
 import model.Patient;
 import model.Referral;
@@ -15,7 +16,8 @@ import model.Referral;
 public class ReferralPanel extends JPanel {
     private HealthcareController controller;
     private JTable referralTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Referral> tableModel;
+    private FilterField filterField;
 
     public ReferralPanel(HealthcareController controller) {
         this.controller = controller;
@@ -23,22 +25,42 @@ public class ReferralPanel extends JPanel {
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         initializeComponents();
+
+        // Only the changed rows are updated after a create, change or delete
+        controller.addChangeListener(event -> {
+            if (event.getEntityType() == EntityChangeEvent.EntityType.REFERRAL) {
+                SwingUtilities.invokeLater(() -> {
+                    // A filtered table is re-queried, as the change may add or drop matches
+                    if (filterField.isActive()) {
+                        refreshData();
+                    } else {
+                        tableModel.applyChange(event, controller::getReferralById);
+                    }
+                });
+            }
+        });
     }
 
     private void initializeComponents() {
-        // Title
+        // Title and filter
+        JPanel headerPanel = new JPanel(new BorderLayout());
         JLabel titleLabel = new JLabel("Referral Management (Singleton Pattern)");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        add(titleLabel, BorderLayout.NORTH);
-        
-        // Table
-        String[] columnNames = {"Referral ID", "Patient", "GP", "Specialist", "Date", "Reason", "Urgency", "Status"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        headerPanel.add(titleLabel, BorderLayout.NORTH);
+        filterField = new FilterField("clinician ID, status, urgency, yyyy-MM-dd[..yyyy-MM-dd]", filter -> refreshData());
+        headerPanel.add(filterField, BorderLayout.SOUTH);
+        add(headerPanel, BorderLayout.NORTH);
+        
+        // Table; cells are read from the referrals as they are painted
+        tableModel = new EntityTableModel<>(Referral::getReferralId);
+        tableModel.addColumn("Referral ID", Referral::getReferralId);
+        tableModel.addColumn("Patient", ref -> patientName(ref.getPatientId()));
+        tableModel.addColumn("GP", ref -> clinicianName(ref.getGpId()));
+        tableModel.addColumn("Specialist", ref -> clinicianName(ref.getSpecialistId()));
+        tableModel.addColumn("Date", Referral::getReferralDate);
+        tableModel.addColumn("Reason", Referral::getReason);
+        tableModel.addColumn("Urgency", Referral::getUrgency);
+        tableModel.addColumn("Status", Referral::getStatus);
         
         referralTable = new JTable(tableModel);
         referralTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -66,27 +88,28 @@ public class ReferralPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
+    /**
+     * Reloads the table, applying the filter if one is entered
+     */
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Referral> referrals = controller.getAllReferrals();
-        
-        for (Referral ref : referrals) {
-            Patient patient = controller.getPatientById(ref.getPatientId());
-            Clinician gp = controller.getClinicianById(ref.getGpId());
-            Clinician specialist = controller.getClinicianById(ref.getSpecialistId());
-            
-            Object[] row = {
-                ref.getReferralId(),
-                patient != null ? patient.getFullName() : ref.getPatientId(),
-                gp != null ? gp.getFullName() : ref.getGpId(),
-                specialist != null ? specialist.getFullName() : ref.getSpecialistId(),
-                ref.getReferralDate(),
-                ref.getReason(),
-                ref.getUrgency(),
-                ref.getStatus()
-            };
-            tableModel.addRow(row);
+        String filter = filterField.getText();
+        if (filter.isEmpty()) {
+            tableModel.setRows(controller.getAllReferrals());
+            return;
         }
+        FilterField.Criteria criteria = FilterField.Criteria.parse(filter, id -> controller.getClinicianById(id) != null);
+        tableModel.setRows(controller.findReferrals(criteria.clinicianId, criteria.status, criteria.urgency,
+                criteria.from, criteria.to, FilterField.RESULT_LIMIT));
+    }
+
+    private String patientName(String patientId) {
+        DisplayProjection patient = controller.getPatientDisplay(patientId);
+        return patient != null ? patient.getFullName() : patientId;
+    }
+
+    private String clinicianName(String clinicianId) {
+        DisplayProjection clinician = controller.getClinicianDisplay(clinicianId);
+        return clinician != null ? clinician.getFullName() : clinicianId;
     }
 
     private void createReferral() {
@@ -145,7 +168,6 @@ public class ReferralPanel extends JPanel {
                 }
                 
                 controller.createReferral(patientId, gpId, specialistId, reason, urgency, notes);
-                refreshData();
                 
                 JOptionPane.showMessageDialog(this, 
                     "Referral created successfully!\n\n" +
@@ -197,14 +219,7 @@ public class ReferralPanel extends JPanel {
         
         String referralId = (String) tableModel.getValueAt(selectedRow, 0);
         
-        // Find the referral
-        Referral referral = null;
-        for (Referral r : controller.getAllReferrals()) {
-            if (r.getReferralId().equals(referralId)) {
-                referral = r;
-                break;
-            }
-        }
+        Referral referral = controller.getReferralById(referralId);
         
         if (referral != null) {
             Patient patient = controller.getPatientById(referral.getPatientId());